@@ -1,9 +1,8 @@
 package Entities;
 
 import GameState.GameStateManager;
+import UI.RenderSnapshot;
 
-import java.awt.*;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
@@ -22,6 +21,10 @@ public abstract class Entity {
     public Rectangle2D collideBox;
     public boolean state;
 
+    // Where this was in the RenderSnapshot numbered snapshotTick
+    protected double snapshotX, snapshotY, snapshotOrient;
+    private long snapshotTick = -1;
+
     // TODO: static id generation is bad
     public static int genId = 0;
 
@@ -45,17 +48,36 @@ public abstract class Entity {
         sprite_h2 = sprite.getHeight() * 0.5;
     }
 
-    public void draw(Graphics2D g) {
-        if (orient != 0) {
-            AffineTransform oldTForm = g.getTransform();
-            g.rotate(orient, x, y);
-            g.drawImage(sprite, (int) (x - sprite_w2), (int) (y - sprite_h2), null);
-            g.setTransform(oldTForm);
-        } else {
-            g.drawImage(sprite, (int) (x - sprite_w2), (int) (y - sprite_h2), null);
+    // Adds this to the snapshot, to be drawn moving from where it was in the last one
+    // (if it was in it, it might have just appeared or been dropped somewhere new)
+    public void snapshot(RenderSnapshot s) {
+        if (snapshotTick != s.tick - 1) {
+            snapshotX = x;
+            snapshotY = y;
+            snapshotOrient = orient;
+        }
+
+        addImages(s);
+
+        snapshotX = x;
+        snapshotY = y;
+        snapshotOrient = orient;
+        snapshotTick = s.tick;
+    }
+
+    // The images that make up this entity, which can use snapshotX etc. to know where it was
+    protected void addImages(RenderSnapshot s) {
+        if (sprite != null) {
+            s.add(sprite, x, y, orient, snapshotX, snapshotY, snapshotOrient,
+                    sprite.getWidth(), sprite.getHeight(), getDrawRadius());
         }
     }
 
+    // Distance from (x, y) to the furthest corner of the sprite at any rotation
+    public double getDrawRadius() {
+        return Math.sqrt(sprite_w2 * sprite_w2 + sprite_h2 * sprite_h2);
+    }
+
     public void setVelocity(double speed) {
         dirX = Math.cos(orient);
         dirY = Math.sin(orient);
@@ -6,11 +6,13 @@ import Entities.Player.ThisPlayer;
 import GameState.GameStateManager;
 import Main.Game;
 import UI.Map;
+import UI.RenderSnapshot;
+import UI.Shadow;
 import UI.Sprite;
 import Util.MyMath;
 import Util.Rect;
 
-import java.awt.*;
+import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,13 +24,33 @@ import java.util.Random;
  */
 public class EntityManager {
 
-    private List<Projectile> projectiles;
+    // Below this many enemies, thinking in parallel costs more than it saves
+    private static final int PARALLEL_THINK_THRESHOLD = 64;
+
+    // Enemies within NEAR_DIST of the player update every tick, the rest every FAR_PERIOD ticks.
+    // Far enemies in rooms the player hasn't come near yet don't update at all
+    private static final double NEAR_DIST = 400.0;
+    private static final int FAR_PERIOD = 4;
+
+    private ProjectileStore projectiles;
+
+    // Owns every entity, the lists below are its typed views
+    private EntityTable table;
     private List<Weapon> weapons;
     private List<Entity> entities;
     private List<Player> players;
     private List<Enemy> enemies;
     public ThisPlayer thisPlayer;
 
+    // Players bucketed by position, rebuilt at the end of every update
+    private PlayerGrid playerGrid;
+    private List<Player> nearbyPlayers;
+
+    // AI scheduling: tick count, which of map.rooms the player has been near, and the enemies updating this tick
+    private int tick;
+    private boolean[] exploredRooms;
+    private List<Enemy> scheduledEnemies;
+
     private GameStateManager gsm;
 
     private Map map;
@@ -39,100 +61,150 @@ public class EntityManager {
         gsm = _gsm;
         randomGenerate = _randomGenerate;
 
+        playerGrid = new PlayerGrid(0.0, 0.0, map.width, map.height);
+        nearbyPlayers = new ArrayList<>();
+
+        exploredRooms = new boolean[map.rooms.size()];
+        scheduledEnemies = new ArrayList<>();
+
+        projectiles = new ProjectileStore(gsm, ProjectileStore.DEFAULT_CAPACITY);
+
+        table = new EntityTable();
+        entities = table.entities;
+        players = table.players;
+        enemies = table.enemies;
+        weapons = table.weapons;
+
         generateEntities(_level);
     }
 
-    public void draw(Graphics2D g) {
-        for (Entity e : entities) {
-            e.draw(g);
+    public void snapshot(RenderSnapshot s) {
+        for (int i = 0; i < entities.size(); i++) {
+            entities.get(i).snapshot(s);
         }
+        projectiles.snapshot(s);
     }
 
     public void update(double deltaTime) {
 
+        // Chasing enemies follow the flow field towards where the player is now
+        map.flowField.setTarget(thisPlayer.x, thisPlayer.y);
+
+        scheduleEnemies();
+
+        // Let every scheduled enemy decide what to do before anyone moves. Thinking only reads the world
+        // (and writes the enemy's own fields), so big levels spread it over several cores
+        if (scheduledEnemies.size() >= PARALLEL_THINK_THRESHOLD) {
+            scheduledEnemies.parallelStream().forEach(Enemy::think);
+        } else {
+            for (int i = 0; i < scheduledEnemies.size(); i++) {
+                scheduledEnemies.get(i).think();
+            }
+        }
+
         // Loop through player array
         for (int i = players.size() - 1; i >= 0; i--) {
             Player p = players.get(i);
 
-            // Generic player update
-            p.update(deltaTime);
-            // Add projectile if player is shooting
-            if (p.shooting && p.weapon != null && p.weapon.ammo > 0 &&
-                    Game.currentTimeMillis() - p.shootTime > p.weapon.rate) {
+            p.pendingTime += deltaTime;
 
-                p.weapon.shoot();
+            // Generic player update (enemies already thought above)
+            if (p == thisPlayer) p.think();
+            if (p.scheduled) {
+                // Move by all the time since the player last moved
+                p.apply(p.pendingTime);
+                p.pendingTime = 0.0;
 
-                for (int j = 0; j < p.weapon.amountPerShot; j++) {
-                    Projectile newProjectile = new Projectile(gsm, p);
-                    projectiles.add(newProjectile);
-                    entities.add(newProjectile);
-                }
-                p.shootTime = Game.currentTimeMillis();
+                // Add projectile if player is shooting
+                if (p.shooting && p.weapon != null && p.weapon.ammo > 0 &&
+                        Game.currentTimeMillis() - p.shootTime > p.weapon.rate) {
+
+                    p.weapon.shoot();
 
+                    for (int j = 0; j < p.weapon.amountPerShot; j++) {
+                        projectiles.spawn(p);
+                    }
+                    p.shootTime = Game.currentTimeMillis();
+
+                }
             }
 
             if (!p.state) {
                 if (p.weapon != null) {
-                    Weapon droppedWeapon = p.getWeaponForDrop();
-                    entities.add(droppedWeapon);
-                    weapons.add(droppedWeapon);
+                    table.add(p.getWeaponForDrop());
                 }
 
                 p.deathSequence();
-
-                players.remove(i);
             }
         }
 
-        // Loop through enemy array
-        for (int i = enemies.size() - 1; i >= 0; i--) {
-            Enemy e = enemies.get(i);
+        // Remove every dead entity at once
+        boolean enemiesLeft = !enemies.isEmpty();
+        table.compact();
 
-            if (!e.state) {
-                enemies.remove(i);
-                // If there are no enemies left, move on to next level
-                if (enemies.size() == 0) {
-                    gsm.setState(GameStateManager.NEXTLEVEL, GameStateManager.TOP);
-                }
-            }
+        // If there are no enemies left, move on to next level
+        if (enemiesLeft && enemies.isEmpty()) {
+            gsm.setState(GameStateManager.NEXTLEVEL, GameStateManager.TOP);
         }
 
-        // Loop through weapon array
-        for (int i = weapons.size() - 1; i >= 0; i--) {
-            Weapon w = weapons.get(i);
+        projectiles.update(deltaTime);
 
-            if (!w.state) {
-                weapons.remove(i);
-            }
-        }
+        playerGrid.rebuild(players);
 
-        // Loop through projectile array
-        for (int i = projectiles.size() - 1; i >= 0; i--) {
-            Projectile p = projectiles.get(i);
+    }
 
-            p.move(deltaTime);
-            p.updateCollideBox();
+    // Picks the enemies that update this tick. Far enemies are staggered by id,
+    // so the same share of them updates on every tick
+    private void scheduleEnemies() {
+        tick++;
 
-            if (!p.state) {
-                projectiles.remove(i);
+        // Rooms count as explored once the player has been near them
+        for (int i = 0; i < exploredRooms.length; i++) {
+            if (!exploredRooms[i] && nearRoom(map.rooms.get(i), thisPlayer.x, thisPlayer.y, NEAR_DIST)) {
+                exploredRooms[i] = true;
             }
         }
 
-        // Loop through entity array
-        for (int i = entities.size() - 1; i >= 0; i--) {
-            Entity e = entities.get(i);
+        scheduledEnemies.clear();
+        for (int i = 0; i < enemies.size(); i++) {
+            Enemy e = enemies.get(i);
 
-            if (!e.state) {
-                entities.remove(i);
+            double dx = e.x - thisPlayer.x, dy = e.y - thisPlayer.y;
+            if (dx * dx + dy * dy < NEAR_DIST * NEAR_DIST) {
+                e.scheduled = true;
+            } else if (inUnexploredRoom(e)) {
+                // Dormant, and time doesn't build up while asleep
+                e.scheduled = false;
+                e.pendingTime = 0.0;
+            } else {
+                e.scheduled = (tick + e.getId()) % FAR_PERIOD == 0;
             }
+
+            if (e.scheduled) scheduledEnemies.add(e);
         }
+    }
 
+    private boolean inUnexploredRoom(Enemy e) {
+        for (int i = 0; i < exploredRooms.length; i++) {
+            if (!exploredRooms[i] && nearRoom(map.rooms.get(i), e.x, e.y, 0.0)) return true;
+        }
+        return false;
+    }
+
+    // Returns true if (x, y) is within dist of the room
+    private static boolean nearRoom(Rect room, double x, double y, double dist) {
+        return x >= room.x - dist && x <= room.x + room.w + dist &&
+                y >= room.y - dist && y <= room.y + room.h + dist;
     }
 
     private Hittable checkDirectHit(Projectile p) {
 
-        for (Player player : players) {
-            if (player.getId() != p.shooter.getId() && player.handleDirectHit(p)) {
+        Line2D path = p.collideLine;
+        nearbyPlayers.clear();
+        playerGrid.queryLine(path.getX1(), path.getY1(), path.getX2(), path.getY2(), nearbyPlayers);
+
+        for (Player player : nearbyPlayers) {
+            if (player.getId() != p.shooterId && player.handleDirectHit(p)) {
                 return player;
             }
         }
@@ -148,17 +220,21 @@ public class EntityManager {
 
         List<Sprite> hitAnimations = new ArrayList<>();
 
-        for (Projectile p : projectiles) {
+        for (int i = 0; i < projectiles.size(); i++) {
+            Projectile p = projectiles.get(i);
             Hittable hitThing = checkDirectHit(p);
             if (hitThing != null) {
-                p.state = false;
+                projectiles.kill(i);
 
                 // TODO: instead, add these to graphicsManager
                 hitAnimations.add(new Sprite(p.x, p.y, p.orient + MyMath.PI, 1, false, hitThing.getHitAnimation()));
 
                 if (hitThing.getId() != map.getId()) map.handleIndirectHit(p);
 
-                for (Player player : players) {
+                nearbyPlayers.clear();
+                playerGrid.queryRadius(p.x, p.y, p.explodeRadius, nearbyPlayers);
+
+                for (Player player : nearbyPlayers) {
                     if (hitThing.getId() != player.getId() && player.handleIndirectHit(p)) {
                         double angle = Math.atan2(player.y - p.y, player.x - p.x);
                         hitAnimations.add(new Sprite(player.x, player.y, angle, 1, false, player.getHitAnimation()));
@@ -171,36 +247,33 @@ public class EntityManager {
     }
 
     public void generateEntities(int difficultyFactor) {
-        enemies = new ArrayList<>();
-        projectiles = new ArrayList<>();
-        weapons = new ArrayList<>();
-        entities = new ArrayList<>();
-        players = new ArrayList<>();
+        table.clear();
         thisPlayer = new ThisPlayer(gsm, map);
 
         Rect playerSpawn = map.cells.get(map.rooms.size() - 1);
 
+        // The player is added even without a free spot, everything else is skipped
         putEntity(thisPlayer, playerSpawn);
-        players.add(thisPlayer);
+        table.add(thisPlayer);
 
         Weapon spawnWeapon = randomWeapon(difficultyFactor);
-        putEntity(spawnWeapon, playerSpawn);
-        weapons.add(spawnWeapon);
+        if (putEntity(spawnWeapon, playerSpawn)) table.add(spawnWeapon);
 
         for (Rect room : map.rooms) {
             if (!room.equals(playerSpawn)) {
                 for (int i = 0; i < difficultyFactor; i++) {
                     Enemy newEnemy = new Enemy(gsm, MyMath.random(0.0, MyMath.TWO_PI, randomGenerate), map, thisPlayer);
                     newEnemy.setWeapon(randomWeapon(difficultyFactor));
-                    putEntity(newEnemy, room);
-                    enemies.add(newEnemy);
-                    players.add(newEnemy);
+                    if (putEntity(newEnemy, room)) table.add(newEnemy);
                 }
             }
         }
+
+        playerGrid.rebuild(players);
     }
 
-    private void putEntity(Entity entity, Rect room) {
+    // Moves entity to a random free spot in room, returns false if there wasn't one
+    private boolean putEntity(Entity entity, Rect room) {
 
         Rectangle2D checkCollider = new Rectangle2D.Double(randomRoomX(room),randomRoomY(room),entity.w,entity.h);
         int i = 0;
@@ -209,14 +282,14 @@ public class EntityManager {
             i++;
             if (i > 20) {
                 System.out.println("No space for entity to be spawned at " + entity.w + " , " + entity.h);
-                return;
+                return false;
             }
         }
 
         entity.x = checkCollider.getX()+checkCollider.getWidth() * 0.5;
         entity.y = checkCollider.getY()+checkCollider.getHeight() * 0.5;
 
-        entities.add(entity);
+        return true;
 
     }
 
@@ -240,12 +313,12 @@ public class EntityManager {
     public void attemptWeaponChange() {
         boolean availableWeapon = false;
         for (Weapon w : weapons) {
+            // Skip weapons already picked up this tick (they are removed on the next update)
+            if (!w.state) continue;
             w.updateCollideBox();
             if (thisPlayer.collideBox.intersects(w.collideBox)) {
                 if (thisPlayer.weapon != null) {
-                    Weapon droppedWeapon = thisPlayer.getWeaponForDrop();
-                    entities.add(droppedWeapon);
-                    weapons.add(droppedWeapon);
+                    table.add(thisPlayer.getWeaponForDrop());
                 }
                 thisPlayer.setWeapon(w);
                 w.state = false;
@@ -254,13 +327,22 @@ public class EntityManager {
             }
         }
         if (!availableWeapon && thisPlayer.weapon != null) {
-            Weapon droppedWeapon = thisPlayer.getWeaponForDrop();
-            entities.add(droppedWeapon);
-            weapons.add(droppedWeapon);
+            table.add(thisPlayer.getWeaponForDrop());
             thisPlayer.setWeapon(null);
         }
     }
 
+    // Lets every enemy check line of sight against the player's visibility polygon
+    public void setVisibility(Shadow visibility) {
+        for (Enemy e : enemies) {
+            e.setVisibility(visibility);
+        }
+    }
+
+    public ProjectileStore getProjectiles() {
+        return projectiles;
+    }
+
     public List<Enemy> getEnemies() {
         return enemies;
     }
@@ -0,0 +1,67 @@
+package Entities;
+
+import Entities.Player.Enemy;
+import Entities.Player.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Entities/
+ * Every entity in the level, with typed views of the players, enemies and weapons.
+ */
+public class EntityTable {
+
+    // add() puts an entity in the table and in whichever views it belongs to.
+    // Entities are never removed one at a time, instead compact() drops every entity whose
+    // state is false from all the lists at once, keeping the order of the rest (the draw order).
+    // The lists themselves are never replaced, so it is fine to hold on to them.
+
+    public final List<Entity> entities;
+    public final List<Player> players;
+    public final List<Enemy> enemies;
+    public final List<Weapon> weapons;
+
+    public EntityTable() {
+        entities = new ArrayList<>();
+        players = new ArrayList<>();
+        enemies = new ArrayList<>();
+        weapons = new ArrayList<>();
+    }
+
+    public void add(Entity e) {
+        entities.add(e);
+        if (e instanceof Player) players.add((Player) e);
+        if (e instanceof Enemy) enemies.add((Enemy) e);
+        if (e instanceof Weapon) weapons.add((Weapon) e);
+    }
+
+    // Removes every dead entity, should be called once per tick
+    public void compact() {
+        compact(entities);
+        compact(players);
+        compact(enemies);
+        compact(weapons);
+    }
+
+    private static <T extends Entity> void compact(List<T> list) {
+        int size = 0;
+        for (int i = 0; i < list.size(); i++) {
+            T e = list.get(i);
+            if (e.state) list.set(size++, e);
+        }
+
+        // Trim from the end so nothing gets shifted
+        for (int i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+
+    public void clear() {
+        entities.clear();
+        players.clear();
+        enemies.clear();
+        weapons.clear();
+    }
+
+}
@@ -3,9 +3,10 @@ package Entities.Player;
 import GameState.GameStateManager;
 import Main.Game;
 import UI.Map;
+import UI.NavGraph;
+import UI.Shadow;
 import Util.MyMath;
 
-import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
 
 /**
@@ -14,11 +15,27 @@ import java.awt.image.BufferedImage;
  */
 public class Enemy extends Player {
 
+    // Width and height of an enemy's collision box
+    public static final double SIZE = 36.0;
+
+    // How close (squared) an enemy has to get to where it last saw the player before giving up
+    private static final double CHASE_ARRIVE_SQ = 24.0 * 24.0;
+    // How long (ms) an enemy keeps chasing after losing sight of the player
+    private static final int CHASE_TIME = 10000;
+
 //    private int shootTime;
     private int idleTime, reactionTime;
     private ThisPlayer thisPlayer;
     private double ax, ay;
 
+    // Where the player was last seen, which the enemy walks to (through the rooms and corridors) after losing sight
+    private double lastSeenX, lastSeenY;
+    private int lastSeenTime;
+    private boolean chasing;
+
+    // The player's visibility polygon, shared by every enemy (null to test against the walls instead)
+    private Shadow visibility;
+
     public Enemy(GameStateManager _gsm, double _orient, Map _map, ThisPlayer _thisPlayer) {
         super(_gsm, _orient, _map);
         thisPlayer = _thisPlayer;
@@ -30,7 +47,11 @@ public class Enemy extends Player {
         shootSprite = (BufferedImage)gsm.assetManager.getAsset("player1g.png");
         defaultSprite = (BufferedImage)gsm.assetManager.getAsset("player1.png");
         setSpriteToDefault(weapon == null);
-        setBounds(36, 36);
+        setBounds(SIZE, SIZE);
+    }
+
+    public void setVisibility(Shadow _visibility) {
+        visibility = _visibility;
     }
 
     protected void updateSpecific() {
@@ -44,6 +65,11 @@ public class Enemy extends Player {
             double angleBetween = Math.atan2(py - y, px - x);
             double deltaAngle = deltaAngle(angleBetween);
 
+            lastSeenX = px;
+            lastSeenY = py;
+            lastSeenTime = Game.currentTimeMillis();
+            chasing = true;
+
             setVelocity(0);
             if (distBetweenSq(px, py) > 10000.0) {
                 goTowards(angleBetween, 2.0);
@@ -54,7 +80,10 @@ public class Enemy extends Player {
             } else {
                 orientTo(deltaAngle, 0.09);
             }
+        } else if (chasing && !playerDead && Game.currentTimeMillis() - lastSeenTime < CHASE_TIME) {
+            chase();
         } else {
+            chasing = false;
             if (Game.currentTimeMillis() - idleTime > 2000) {
                 if (vx == 0) {
                     ax = MyMath.random(-0.2, 0.2);
@@ -75,6 +104,48 @@ public class Enemy extends Player {
         }
     }
 
+    // Follows the flow field towards the player, or if it has no path from here,
+    // walks towards where the player was last seen through the portals between cells
+    private void chase() {
+        double flowAngle = map.flowField.directionAt(x, y);
+        if (!Double.isNaN(flowAngle)) {
+            moveTowards(flowAngle);
+            return;
+        }
+
+        NavGraph nav = map.navGraph;
+
+        double targetX = lastSeenX, targetY = lastSeenY;
+
+        int from = nav.cellAt(x, y), to = nav.cellAt(lastSeenX, lastSeenY);
+        if (from != -1 && to != -1 && from != to) {
+            int next = nav.nextCell(from, to);
+            if (next != -1) {
+                targetX = nav.getPortalX(from, next);
+                targetY = nav.getPortalY(from, next);
+            }
+        }
+
+        double dx = targetX - x, dy = targetY - y;
+        if (from == to && dx * dx + dy * dy < CHASE_ARRIVE_SQ) {
+            // Got there and the player is gone, go back to wandering
+            chasing = false;
+            idleTime = Game.currentTimeMillis();
+            return;
+        }
+
+        moveTowards(Math.atan2(dy, dx));
+    }
+
+    private void moveTowards(double angle) {
+        goTowards(angle, 2.0);
+
+        double deltaAngle = deltaAngle(angle);
+        if (!lookingAt(deltaAngle, 0.1)) {
+            orientTo(deltaAngle, 0.07);
+        }
+    }
+
     private void bounceForward() {
         moveX(ax);
         moveY(ay);
@@ -119,13 +190,9 @@ public class Enemy extends Player {
     }
 
     private boolean lineOfSight(double px, double py) {
-        Line2D sightLine = new Line2D.Double(x, y, px, py);
-        for (Line2D w : map.walls) {
-            if (w.intersectsLine(sightLine)) {
-                return false;
-            }
-        }
-        return true;
+        // Seeing the player is the same as being inside the player's visible area
+        if (visibility != null) return visibility.isVisible(x, y);
+        return !map.intersectsWall(x, y, px, py);
     }
 
     private boolean lookingAt(double dAngle, double tolerance) {
@@ -7,13 +7,12 @@ import Entities.Weapon;
 import GameState.GameStateManager;
 import Main.Game;
 import UI.Map;
+import UI.RenderSnapshot;
 import Util.ImageUtils;
 import Util.MyMath;
 import javafx.scene.media.AudioClip;
 
 import java.awt.*;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
 /**
@@ -27,8 +26,18 @@ public abstract class Player extends Entity implements Hittable {
     public double maxLife;
     protected double topSpeed, diagSpeed;
     public static final double acceleration = 1.0;
+
+    // Where the middle of the gun is drawn, relative to the middle of the player facing right
+    private static final double GUN_X = 26, GUN_Y = 2,
+            GUN_OFFSET = Math.sqrt(GUN_X * GUN_X + GUN_Y * GUN_Y);
+
     public int shootTime;
     public boolean shooting, moving;
+
+    // Set by the AI scheduler in EntityManager: whether this player thinks and moves this tick,
+    // and how much time has built up since it last moved
+    public boolean scheduled = true;
+    public double pendingTime;
     protected BufferedImage shootSprite, defaultSprite, deadSprite;
     protected Map map;
 
@@ -56,17 +65,26 @@ public abstract class Player extends Entity implements Hittable {
     }
 
     @Override
-    public void draw(Graphics2D g) {
-        super.draw(g);
+    protected void addImages(RenderSnapshot s) {
+        super.addImages(s);
 
         if (weapon != null) {
-            AffineTransform oldTForm = g.getTransform();
-            g.rotate(orient, x, y);
-            g.drawImage(weapon.sprite, (int) (x - weapon.sprite_w2 + 26), (int) (y - weapon.sprite_h2 + 2), null);
-            g.setTransform(oldTForm);
+            double cos = Math.cos(orient), sin = Math.sin(orient),
+                    lastCos = Math.cos(snapshotOrient), lastSin = Math.sin(snapshotOrient);
+            s.add(weapon.sprite,
+                    x + GUN_X * cos - GUN_Y * sin, y + GUN_X * sin + GUN_Y * cos, orient,
+                    snapshotX + GUN_X * lastCos - GUN_Y * lastSin, snapshotY + GUN_X * lastSin + GUN_Y * lastCos, snapshotOrient,
+                    weapon.sprite.getWidth(), weapon.sprite.getHeight(), weapon.getDrawRadius());
         }
     }
 
+    // The gun can stick out past the body
+    public double getDrawRadius() {
+        double radius = super.getDrawRadius();
+        if (weapon != null) radius = Math.max(radius, GUN_OFFSET + weapon.getDrawRadius());
+        return radius;
+    }
+
     public void setWeapon(Weapon w) {
         weapon = w;
         if (w == null) {
@@ -113,20 +131,29 @@ public abstract class Player extends Entity implements Hittable {
             else vy = -diagSpeed;
         }
 
-        // If there is no obstacle horizontally
-        if (vx != 0.0 && !obstacleX(vx)) {
-            x += vx * deltaTime;
-        } else {
-            // Restrict horizontal movement
-            vx = 0;
-        }
-
-        // If there is no obstacle vertically
-        if (vy != 0.0 && !obstacleY(vy)) {
-            y += vy * deltaTime;
-        } else {
-            // Restrict vertical movement
-            vy = 0.0;
+        // Enemies that aren't updated every tick move several ticks at once, so split the move into
+        // steps of at most one tick. Each step checks for obstacles one tick of movement ahead, which
+        // stops at the same walls and corners as moving every tick would
+        int steps = Math.max(1, (int) Math.ceil(deltaTime));
+        double step = deltaTime / steps;
+
+        for (int i = 0; i < steps; i++) {
+
+            // If there is no obstacle horizontally
+            if (vx != 0.0 && !obstacleX(vx)) {
+                x += vx * step;
+            } else {
+                // Restrict horizontal movement
+                vx = 0;
+            }
+
+            // If there is no obstacle vertically
+            if (vy != 0.0 && !obstacleY(vy)) {
+                y += vy * step;
+            } else {
+                // Restrict vertical movement
+                vy = 0.0;
+            }
         }
 
 //        // Apply friction on y velocity if not accelerating
@@ -212,7 +239,18 @@ public abstract class Player extends Entity implements Hittable {
     public int stepTime = Game.currentTimeMillis();
 
     public void update(double deltaTime) {
+        think();
+        apply(deltaTime);
+    }
+
+    // Decides what to do this tick (velocity, orientation, shooting) without moving.
+    // For enemies this only reads shared state, so enemies can think in parallel
+    public void think() {
         updateSpecific();
+    }
+
+    // Moves by the velocity chosen in think()
+    public void apply(double deltaTime) {
         updatePosition(deltaTime);
         updateCollideBox();
     }
@@ -229,13 +267,11 @@ public abstract class Player extends Entity implements Hittable {
     }
 
     private boolean obstacleX(double vx) {
-        Rectangle2D futureX = new Rectangle2D.Double(x - w * 0.5 + vx, y - h * 0.5, w, h);
-        return map.inverseRegion.intersects(futureX);
+        return map.isBlocked(x - w * 0.5 + vx, y - h * 0.5, w, h);
     }
 
     private boolean obstacleY(double vy) {
-        Rectangle2D futureY = new Rectangle2D.Double(x - w * 0.5, y - h * 0.5 + vy, w, h);
-        return map.inverseRegion.intersects(futureY);
+        return map.isBlocked(x - w * 0.5, y - h * 0.5 + vy, w, h);
     }
 
     public void deathSequence() {
@@ -0,0 +1,129 @@
+package Entities;
+
+import Entities.Player.Player;
+
+import java.util.List;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Entities/
+ * Spatial hash of the players, rebuilt once per tick for projectile collision.
+ */
+public class PlayerGrid {
+
+    // Each player is put in the cell that holds its center, and the cells are stored as
+    // one sorted array (counting sort), so a rebuild doesn't allocate unless the player count grows.
+    // Queries are padded by the largest player half size, so they return every player whose
+    // box could touch the query, plus a few that don't (callers still do the exact test).
+
+    // Size of one (square) cell in world units
+    public static final double CELL_SIZE = 128.0;
+
+    private final double originX, originY;
+    private final int cols, rows;
+
+    // Players in cell i are sorted[cellStart[i]] to sorted[cellStart[i + 1] - 1]
+    private final int[] cellStart;
+    private Player[] sorted;
+    private int[] playerCell;
+    private int count;
+
+    // Half of the biggest player's width or height
+    private double padding;
+
+    public PlayerGrid(double x, double y, double width, double height) {
+        originX = x;
+        originY = y;
+        cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+
+        cellStart = new int[cols * rows + 1];
+        sorted = new Player[16];
+        playerCell = new int[16];
+    }
+
+    public void rebuild(List<Player> players) {
+        count = players.size();
+        if (sorted.length < count) {
+            sorted = new Player[Math.max(count, sorted.length * 2)];
+            playerCell = new int[sorted.length];
+        }
+
+        for (int i = 0; i < cellStart.length; i++) {
+            cellStart[i] = 0;
+        }
+
+        // Count the players in each cell
+        padding = 0.0;
+        for (int i = 0; i < count; i++) {
+            Player p = players.get(i);
+            int cell = row(p.y) * cols + col(p.x);
+            playerCell[i] = cell;
+            cellStart[cell + 1]++;
+            padding = Math.max(padding, Math.max(p.w, p.h) * 0.5);
+        }
+
+        // Turn the counts into start positions
+        for (int i = 1; i < cellStart.length; i++) {
+            cellStart[i] += cellStart[i - 1];
+        }
+
+        // Place each player, walking backwards so cellStart ends up back at the start of each cell
+        for (int i = count - 1; i >= 0; i--) {
+            int cell = playerCell[i];
+            sorted[--cellStart[cell + 1]] = players.get(i);
+        }
+        System.arraycopy(cellStart, 1, cellStart, 0, cellStart.length - 1);
+        cellStart[cellStart.length - 1] = count;
+
+        // Drop references to players that were removed
+        for (int i = count; i < sorted.length && sorted[i] != null; i++) {
+            sorted[i] = null;
+        }
+    }
+
+    // Adds the players that might touch the line (x1, y1) -> (x2, y2) to output
+    public void queryLine(double x1, double y1, double x2, double y2, List<Player> output) {
+        query(Math.min(x1, x2) - padding, Math.min(y1, y2) - padding,
+                Math.max(x1, x2) + padding, Math.max(y1, y2) + padding, output);
+    }
+
+    // Adds the players whose center is within radius of (x, y) to output
+    public void queryRadius(double x, double y, double radius, List<Player> output) {
+        int start = output.size();
+        query(x - radius, y - radius, x + radius, y + radius, output);
+
+        // Remove the players in the corners of the box, swapping the last one into the gap
+        double radiusSq = radius * radius;
+        for (int i = output.size() - 1; i >= start; i--) {
+            Player p = output.get(i);
+            if ((p.x - x) * (p.x - x) + (p.y - y) * (p.y - y) >= radiusSq) {
+                output.set(i, output.get(output.size() - 1));
+                output.remove(output.size() - 1);
+            }
+        }
+    }
+
+    private void query(double minX, double minY, double maxX, double maxY, List<Player> output) {
+        int minCol = col(minX), maxCol = col(maxX),
+                minRow = row(minY), maxRow = row(maxY);
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int cell = r * cols + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    Player p = sorted[i];
+                    if (p.x >= minX && p.x <= maxX && p.y >= minY && p.y <= maxY) output.add(p);
+                }
+            }
+        }
+    }
+
+    private int col(double x) {
+        return Math.min(Math.max((int) Math.floor((x - originX) / CELL_SIZE), 0), cols - 1);
+    }
+
+    private int row(double y) {
+        return Math.min(Math.max((int) Math.floor((y - originY) / CELL_SIZE), 0), rows - 1);
+    }
+
+}
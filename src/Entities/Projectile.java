@@ -1,12 +1,8 @@
 package Entities;
 
-import Entities.Player.Player;
 import GameState.GameStateManager;
-import Util.MyMath;
-import javafx.scene.media.AudioClip;
 
 import java.awt.geom.Line2D;
-import java.awt.image.BufferedImage;
 
 /**
  * Directory: WarmVector_Client_Singleplayer/Entities/
@@ -14,56 +10,22 @@ import java.awt.image.BufferedImage;
  */
 public class Projectile extends Entity {
 
+    // Projectiles are stored in the arrays of ProjectileStore, this is just a view of one of them.
+    // The store loads a projectile into it so it can be passed to the Hittable methods
+
     public Line2D collideLine;
-    private double lastX, lastY;
-    private double accel;
     public double explodeRadius, damage;
-    public AudioClip hitSound;
-
-    public Player shooter;
-
-    protected Projectile(GameStateManager _gsm, Player _shooter) {
-
-        super(_gsm, _shooter.x, _shooter.y, _shooter.orient + MyMath.random(-_shooter.weapon.spread * 0.5, _shooter.weapon.spread * 0.5));
-
-        shooter = _shooter;
-
-        sprite = (BufferedImage)gsm.assetManager.getAsset(_shooter.weapon.bulletImage);
-        setBounds(sprite.getWidth(), sprite.getHeight());
-
-        setVelocity(_shooter.weapon.i_speed);
-
-        x += Weapon.ORIGIN_RADIUS * dirX;
-        y += Weapon.ORIGIN_RADIUS * dirY;
-        lastX = x;
-        lastY = y;
-
-        hitSound = _shooter.weapon.hitSound;
-        accel = _shooter.weapon.accel;
-        explodeRadius = _shooter.weapon.explodeRadius;
-        damage = _shooter.weapon.damage;
-
-        collideLine = new Line2D.Double(x, y, x, y);
-
-    }
+    public int shooterId;
 
-    public void move(double deltaTime) {
-        if (accel != 0) {
-            vx += dirX * accel;
-            vy += dirY * accel;
-        }
+    protected Projectile(GameStateManager _gsm) {
 
-        lastX = x;
-        lastY = y;
+        super(_gsm, 0, 0, 0);
 
-        x += vx * deltaTime;
-        y += vy * deltaTime;
+        collideLine = new Line2D.Double();
 
-        updateCollideBox();
     }
 
     @Override
     public void updateCollideBox() {
-        collideLine.setLine(x, y, lastX, lastY);
     }
 }
@@ -0,0 +1,207 @@
+package Entities;
+
+import Entities.Player.Player;
+import GameState.GameStateManager;
+import UI.RenderSnapshot;
+import Util.MyMath;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Entities/
+ * Every live projectile, stored as parallel primitive arrays.
+ */
+public class ProjectileStore {
+
+    // Projectile i is made of x[i], y[i], vx[i], ... for i < count.
+    // Dead projectiles are swapped out with the last one at the end of each update,
+    // so the arrays stay packed and a tick never allocates once they are big enough.
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private GameStateManager gsm;
+
+    private int count;
+    private double[] x, y, lastX, lastY, vx, vy, dirX, dirY, orient, accel, damage, radius;
+    private int[] shooterId;
+    private boolean[] alive, launched;
+    private BufferedImage[] sprite;
+
+    // Shared view that get() loads a projectile into
+    private final Projectile view;
+
+    // Stats for sizing the store: most projectiles alive at once, and how often the arrays had to grow
+    private int highWater, grows;
+
+    public ProjectileStore(GameStateManager _gsm, int capacity) {
+        gsm = _gsm;
+        view = new Projectile(gsm);
+        allocate(Math.max(1, capacity));
+    }
+
+    public void spawn(Player shooter) {
+        if (count == x.length) {
+            allocate(x.length * 2);
+            grows++;
+        }
+
+        int i = count++;
+        if (count > highWater) highWater = count;
+
+        Weapon weapon = shooter.weapon;
+
+        orient[i] = shooter.orient + MyMath.random(-weapon.spread * 0.5, weapon.spread * 0.5);
+        dirX[i] = Math.cos(orient[i]);
+        dirY[i] = Math.sin(orient[i]);
+        vx[i] = dirX[i] * weapon.i_speed;
+        vy[i] = dirY[i] * weapon.i_speed;
+
+        // The first step is swept from the shooter, so a wall between it and the muzzle is still hit
+        lastX[i] = shooter.x;
+        lastY[i] = shooter.y;
+        x[i] = shooter.x + Weapon.ORIGIN_RADIUS * dirX[i];
+        y[i] = shooter.y + Weapon.ORIGIN_RADIUS * dirY[i];
+
+        accel[i] = weapon.accel;
+        damage[i] = weapon.damage;
+        radius[i] = weapon.explodeRadius;
+        shooterId[i] = shooter.getId();
+        sprite[i] = (BufferedImage) gsm.assetManager.getAsset(weapon.bulletImage);
+        alive[i] = true;
+        launched[i] = false;
+    }
+
+    // Removes the dead projectiles, then moves the rest
+    public void update(double deltaTime) {
+
+        for (int i = count - 1; i >= 0; i--) {
+            if (!alive[i]) {
+                // Order doesn't matter here, so move the last projectile into the gap
+                count--;
+                if (i != count) copy(count, i);
+                sprite[count] = null;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (accel[i] != 0) {
+                vx[i] += dirX[i] * accel[i];
+                vy[i] += dirY[i] * accel[i];
+            }
+
+            if (launched[i]) {
+                lastX[i] = x[i];
+                lastY[i] = y[i];
+            }
+            launched[i] = true;
+
+            x[i] += vx[i] * deltaTime;
+            y[i] += vy[i] * deltaTime;
+        }
+    }
+
+    // Adds every live projectile to the snapshot, moving from where it was before this tick's step
+    public void snapshot(RenderSnapshot s) {
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = sprite[i];
+            // Half of width + height is never less than half the diagonal, and saves a sqrt
+            s.add(image, x[i], y[i], orient[i], lastX[i], lastY[i], orient[i],
+                    image.getWidth(), image.getHeight(), (image.getWidth() + image.getHeight()) * 0.5);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Loads projectile i into the shared view (which is overwritten by the next call)
+    public Projectile get(int i) {
+        view.x = x[i];
+        view.y = y[i];
+        view.orient = orient[i];
+        view.collideLine.setLine(x[i], y[i], lastX[i], lastY[i]);
+        view.damage = damage[i];
+        view.explodeRadius = radius[i];
+        view.shooterId = shooterId[i];
+        view.sprite = sprite[i];
+        view.state = alive[i];
+        return view;
+    }
+
+    // Marks projectile i as dead, it is removed on the next update
+    public void kill(int i) {
+        alive[i] = false;
+    }
+
+    public boolean isAlive(int i) {
+        return alive[i];
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    public int getHighWater() {
+        return highWater;
+    }
+
+    public int getGrows() {
+        return grows;
+    }
+
+    private void copy(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        lastX[to] = lastX[from];
+        lastY[to] = lastY[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        dirX[to] = dirX[from];
+        dirY[to] = dirY[from];
+        orient[to] = orient[from];
+        accel[to] = accel[from];
+        damage[to] = damage[from];
+        radius[to] = radius[from];
+        shooterId[to] = shooterId[from];
+        alive[to] = alive[from];
+        launched[to] = launched[from];
+        sprite[to] = sprite[from];
+    }
+
+    // Resizes every array to capacity, keeping the first count projectiles
+    private void allocate(int capacity) {
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        lastX = grow(lastX, capacity);
+        lastY = grow(lastY, capacity);
+        vx = grow(vx, capacity);
+        vy = grow(vy, capacity);
+        dirX = grow(dirX, capacity);
+        dirY = grow(dirY, capacity);
+        orient = grow(orient, capacity);
+        accel = grow(accel, capacity);
+        damage = grow(damage, capacity);
+        radius = grow(radius, capacity);
+
+        int[] newShooterId = new int[capacity];
+        boolean[] newAlive = new boolean[capacity], newLaunched = new boolean[capacity];
+        BufferedImage[] newSprite = new BufferedImage[capacity];
+        if (count > 0) {
+            System.arraycopy(shooterId, 0, newShooterId, 0, count);
+            System.arraycopy(alive, 0, newAlive, 0, count);
+            System.arraycopy(launched, 0, newLaunched, 0, count);
+            System.arraycopy(sprite, 0, newSprite, 0, count);
+        }
+        shooterId = newShooterId;
+        alive = newAlive;
+        launched = newLaunched;
+        sprite = newSprite;
+    }
+
+    private double[] grow(double[] array, int capacity) {
+        double[] newArray = new double[capacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, count);
+        return newArray;
+    }
+
+}
@@ -22,6 +22,12 @@ public abstract class GameState {
 
     public abstract void draw(Graphics2D g);
 
+    // Whether draw() only uses what update() has already published, so the render thread
+    // can call it while the next update runs instead of holding GameStateManager's lock
+    public boolean drawsSnapshots() {
+        return false;
+    }
+
     public abstract void update(double deltaTime);
 
     public abstract void inputHandle(MyInputEvent event);
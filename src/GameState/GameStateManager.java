@@ -44,21 +44,28 @@ public class GameStateManager {
     public GraphicsManager graphicsManager;
     public Window window;
 
-    public boolean running;
+    // Set from the window's thread when it is closed
+    public volatile boolean running;
 
     public GameStateManager(AssetManager _assetManager, AudioManager _audioManager,
                             GraphicsManager _graphicsManager, Window _window) {
+        this(_assetManager, _audioManager, _graphicsManager);
+        window = _window;
+
+        setState(INTRO, MAIN);
+
+    }
+
+    // Manager with no window and no state, the caller has to set the cursor and the first state
+    public GameStateManager(AssetManager _assetManager, AudioManager _audioManager,
+                            GraphicsManager _graphicsManager) {
         assetManager = _assetManager;
         audioManager = _audioManager;
         graphicsManager = _graphicsManager;
-        window = _window;
 
         running = true;
 
         layers = new GameState[LAYERS];
-
-        setState(INTRO, MAIN);
-
     }
 
     private void initState(int state, int layer) {
@@ -90,7 +97,7 @@ public class GameStateManager {
         layers[layer].load();
 
         if (layer == TOP) {
-            while(!assetManager.isAvailable());
+            assetManager.awaitAvailable();
             layers[TOP].init();
         } else {
             if (assetManager.isAvailable()) {
@@ -109,10 +116,14 @@ public class GameStateManager {
     }
 
 
+    public boolean hasState(int layer) {
+        return layers[layer] != null;
+    }
+
     public void unloadState(int layer) {
         layers[layer].unload();
 
-        while(!assetManager.isAvailable());
+        assetManager.awaitAvailable();
 
         layers[layer] = null;
     }
@@ -148,19 +159,38 @@ public class GameStateManager {
         }
     }
 
+    // Called from the render thread. The update thread holds this manager's lock while it updates,
+    // so states are drawn holding it too, except for those that draw from snapshots
     public void draw(Graphics2D g) {
-        if (layers[LOADING] != null) {
-            layers[LOADING].draw(g);
-        } else if (layers[MAIN] != null) {
-            layers[MAIN].draw(g);
-            if (layers[TOP] != null) {
-                layers[TOP].draw(g);
+        GameState loading, main, top;
+        synchronized (this) {
+            loading = layers[LOADING];
+            main = layers[MAIN];
+            top = layers[TOP];
+        }
+
+        if (loading != null) {
+            drawLayer(loading, g);
+        } else if (main != null) {
+            drawLayer(main, g);
+            if (top != null) {
+                drawLayer(top, g);
             }
         } else {
             System.out.println("Warning: All layers are null during draw()");
         }
     }
 
+    private void drawLayer(GameState state, Graphics2D g) {
+        if (state.drawsSnapshots()) {
+            state.draw(g);
+        } else {
+            synchronized (this) {
+                state.draw(g);
+            }
+        }
+    }
+
     public void quit() {
         running = false;
     }
@@ -32,7 +32,8 @@ public class IntroState extends GameState {
     public void init() {
         gsm.cursor = new MouseCursor(gsm);
 
-        intro = new Sprite(Window.WIDTH * 0.5, Window.HEIGHT * 0.5, 0, 40, false, (BufferedImage[])gsm.assetManager.getAsset("intro_"));
+        intro = new Sprite(Window.WIDTH * 0.5, Window.HEIGHT * 0.5, 0, 40, false,
+                (BufferedImage[])gsm.assetManager.getAsset("intro_"), gsm.assetManager.getRegions("intro_"));
         intro.setDimensions(Window.WIDTH, Window.HEIGHT);
 
         gsm.audioManager.playSong((Media)gsm.assetManager.getAsset("start_menu.mp3"), "start_menu.mp3");
@@ -2,11 +2,13 @@ package GameState;
 
 import Entities.EntityManager;
 import Entities.Player.ThisPlayer;
+import Main.Game;
 import Main.OutputManager;
 import Main.Window;
 import UI.*;
 import Util.MyInputEvent;
 import Util.MyMath;
+import Util.Profiler;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
@@ -44,8 +46,26 @@ public class PlayState extends GameState {
     private HashMap<String, Integer> keyMap;
     private boolean restart;
 
+    // The update thread publishes what to draw at the end of every tick, and the render thread
+    // draws the newest one, with its own camera moved part of the way to where the real one is
+    private SnapshotBuffer snapshots;
+    private Camera view;
+    private double lastDisplayX, lastDisplayY;
+    private long tick;
+
+    // Seed the level is generated from, or -1 to pick a new one every time the level starts
+    private long seed;
+
     public PlayState(GameStateManager _gsm) {
+        this(_gsm, -1);
+    }
+
+    public PlayState(GameStateManager _gsm, long _seed) {
         super(_gsm);
+        seed = _seed;
+
+        snapshots = new SnapshotBuffer(gsm.assetManager);
+        view = new Camera();
     }
 
     public void load() {
@@ -72,19 +92,20 @@ public class PlayState extends GameState {
 
         System.out.println("Starting Level " + level);
 
-        // TODO: use this seed thing somehow
-        long seed = (long) MyMath.random(0, 10000000);
-        Random randomGenerate = new Random(seed);
+        long levelSeed = seed >= 0 ? seed : (long) MyMath.random(0, 10000000);
+        Random randomGenerate = new Random(levelSeed);
 
         map = new Map(gsm, 200, 200, 1.0, OutputManager.getSetting("cave_mode") == 1, randomGenerate);
         entityManager = new EntityManager(gsm, map, level, randomGenerate);
 
         shadow = new Shadow(map, entityManager.thisPlayer.x, entityManager.thisPlayer.y);
+        entityManager.setVisibility(shadow);
 
         sprites = new ArrayList<>();
 
         camera = new Camera(entityManager.getThisPlayer());
         hud = new HUD(entityManager, map);
+        lastDisplayX = Double.NaN;
 
         gsm.cursor.setSprite(MouseCursor.CROSSHAIR);
         gsm.cursor.setMouse((int) (Main.Window.WIDTH * 0.5 + 70), (int) (Window.HEIGHT * 0.5));
@@ -99,8 +120,15 @@ public class PlayState extends GameState {
         gsm.assetManager.unload(ASSETS);
     }
 
+    // Runs on the render thread, and only draws from the newest snapshot
     public void draw(Graphics2D g) {
 
+        RenderSnapshot s = snapshots.acquire();
+        if (s == null) return;
+
+        // How far into the next tick it is
+        double alpha = s.alpha(Game.MS_PER_UPDATE * 1.0e6);
+
         //TEMP
         g.setColor(new Color(81, 105, 124));
         g.fillRect(0, 0, Window.WIDTH, Window.HEIGHT);
@@ -112,40 +140,90 @@ public class PlayState extends GameState {
         g.scale(SCALEFACTOR, SCALEFACTOR);
 
         //translate screen to follow player
-        g.translate(camera.displayX, camera.displayY);
+        view.displayX = s.displayX(alpha);
+        view.displayY = s.displayY(alpha);
+        g.translate(view.displayX, view.displayY);
 
-        //background image
-        g.drawImage(map.background, 0, 0, map.width, map.height, null);
+        // Only things the camera can see are drawn, and counted in the camera
+        view.resetCounts();
 
-        entityManager.draw(g);
+        //background image
+        s.map.drawBackground(g, view);
 
-        for (Sprite a : sprites) {
-            a.draw(g);
-        }
+        s.draw(g, view, alpha);
 
         // TODO: move shadow into map maybe
-        shadow.draw(g);
-        map.draw(g);
+        s.shadow.draw(g, view, s.visible);
+        s.map.draw(g, view);
 
         //reset transformation
         g.setTransform(oldT);
 
-        hud.draw(g);
+        s.hud.draw(g, s);
+        if (Game.isDebug()) s.hud.drawDebug(g, view);
 
         gsm.cursor.draw(g);
 
     }
 
+    @Override
+    public boolean drawsSnapshots() {
+        return true;
+    }
+
+    public EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    // Copies everything draw() needs out of this tick
+    private void publish() {
+        RenderSnapshot s = snapshots.getBack();
+        s.clear();
+        s.tick = ++tick;
+
+        if (Double.isNaN(lastDisplayX)) {
+            lastDisplayX = camera.displayX;
+            lastDisplayY = camera.displayY;
+        }
+        s.displayX = camera.displayX;
+        s.displayY = camera.displayY;
+        s.lastDisplayX = lastDisplayX;
+        s.lastDisplayY = lastDisplayY;
+        lastDisplayX = camera.displayX;
+        lastDisplayY = camera.displayY;
+
+        s.map = map;
+        s.shadow = shadow;
+        s.visible = shadow.getVisible();
+
+        entityManager.snapshot(s);
+        for (Sprite a : sprites) {
+            a.snapshot(s);
+        }
+        hud.snapshot(s);
+
+        s.time = System.nanoTime();
+        snapshots.publish();
+    }
+
     public void update(double deltaTime) {
 
+        Profiler.begin(Profiler.ENTITIES);
         entityManager.update(deltaTime);
+        Profiler.end(Profiler.ENTITIES);
 
         // TODO: should add animations in entityManager
+        Profiler.begin(Profiler.HIT_ANIMATIONS);
         List<Sprite> hitAnimations = entityManager.getHitAnimations();
         sprites.addAll(hitAnimations.stream().collect(Collectors.toList()));
-        if (hitAnimations.size() > 0) {
+        Profiler.end(Profiler.HIT_ANIMATIONS);
+
+        // Carve all of this tick's explosions out of the map at once
+        Profiler.begin(Profiler.EXPLOSIONS);
+        if (map.applyExplosions()) {
             shadow.queueWorldUpdate();
         }
+        Profiler.end(Profiler.EXPLOSIONS);
 
         for (int i = sprites.size() - 1; i >= 0; i--) {
             Sprite a = sprites.get(i);
@@ -160,7 +238,13 @@ public class PlayState extends GameState {
         if (thisPlayer.state && thisPlayer.moving) {
             shadow.queueOriginUpdate();
         }
+        Profiler.begin(Profiler.SHADOW);
         shadow.update(thisPlayer.x, thisPlayer.y);
+        Profiler.end(Profiler.SHADOW);
+
+        Profiler.begin(Profiler.SNAPSHOT);
+        publish();
+        Profiler.end(Profiler.SNAPSHOT);
 
         if (restart) {
             init();
@@ -1,6 +1,8 @@
 package Main;
 
+import Util.AtlasRegion;
 import Util.ImageUtils;
+import Util.TextureAtlas;
 import javafx.scene.media.AudioClip;
 import javafx.scene.media.Media;
 
@@ -17,6 +19,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Directory: WarmVector_Client_Singleplayer/Main/
@@ -25,12 +28,37 @@ import java.util.concurrent.Executors;
  */
 public class AssetManager {
 
+    // Images and animation frames no bigger than MAX_PACKED_SIZE are also copied into a TextureAtlas
+    // as they load, and getRegion()/getRegions() hand out where they are in it, so drawing them
+    // uses a few big images instead of many small ones. Bigger images get a region covering the
+    // whole of themselves. getAsset() still returns the images on their own, to be recolored etc.,
+    // and getRegion(image) finds the region of one of those, so code that only has the image
+    // (like RenderSnapshot) can still draw from the atlas.
+    // Regions are kept when only some assets are unloaded, so loading them again (every level)
+    // doesn't fill the atlas up with more copies; unloading everything clears it.
+    private static final int ATLAS_SIZE = 1024, MAX_PACKED_SIZE = 256;
+
     private ConcurrentHashMap<String, Object> assets;
+    private ConcurrentHashMap<String, Object> regions;
+    // BufferedImage doesn't override equals, so images are looked up by identity
+    private ConcurrentHashMap<BufferedImage, AtlasRegion> imageRegions;
+    private TextureAtlas atlas;
 
     private ExecutorService executor;
 
+    // If false, audio files are skipped when loading and getSFX() returns null
+    private boolean loadAudio;
+
     AssetManager() {
+        this(true);
+    }
+
+    AssetManager(boolean _loadAudio) {
         assets = new ConcurrentHashMap<>();
+        regions = new ConcurrentHashMap<>();
+        imageRegions = new ConcurrentHashMap<>();
+        atlas = new TextureAtlas(ATLAS_SIZE, ATLAS_SIZE);
+        loadAudio = _loadAudio;
     }
 
     public void loadAssets(String[] fileNames) {
@@ -42,6 +70,8 @@ public class AssetManager {
         executor = Executors.newSingleThreadExecutor();
         for (String fileName : fileNames) {
 
+            if (!loadAudio && (fileName.endsWith(".mp3") || fileName.endsWith(".wav"))) continue;
+
             if (!assets.containsKey(fileName)) {
                 executor.execute(() -> {
                     if (fileName.endsWith(".mp3")) {
@@ -49,9 +79,28 @@ public class AssetManager {
                     } else if (fileName.endsWith(".wav")) {
                         assets.put(fileName, loadShortAudio(fileName));
                     } else if (fileName.endsWith(".png")) {
-                        assets.put(fileName, loadImage("resources/Images/" + fileName));
+                        BufferedImage image = loadImage("resources/Images/" + fileName);
+                        assets.put(fileName, image);
+                        AtlasRegion region = (AtlasRegion) regions.get(fileName);
+                        if (region == null) {
+                            region = pack(image);
+                            regions.put(fileName, region);
+                        }
+                        imageRegions.put(image, region);
                     } else if (fileName.endsWith("_")) {
-                        assets.put(fileName, loadAnimation("resources/Animations/" + fileName));
+                        BufferedImage[] frames = loadAnimation("resources/Animations/" + fileName);
+                        assets.put(fileName, frames);
+                        AtlasRegion[] packed = (AtlasRegion[]) regions.get(fileName);
+                        if (packed == null) {
+                            packed = new AtlasRegion[frames.length];
+                            for (int i = 0; i < frames.length; i++) {
+                                packed[i] = pack(frames[i]);
+                            }
+                            regions.put(fileName, packed);
+                        }
+                        for (int i = 0; i < frames.length; i++) {
+                            imageRegions.put(frames[i], packed[i]);
+                        }
                     } else {
                         System.err.println("Error: invalid file type requested.");
                         System.exit(1);
@@ -66,8 +115,19 @@ public class AssetManager {
         return executor == null || executor.isTerminated();
     }
 
+    // Waits for the loader to finish, without keeping a core busy while it does
+    public void awaitAvailable() {
+        if (executor == null) return;
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     // TODO: testing!!!!!
     public AudioClip getSFX(String name) {
+        if (!loadAudio) return null;
         return loadShortAudio(name);
     }
 
@@ -85,6 +145,30 @@ public class AssetManager {
         return asset;
     }
 
+    // Where the image asset name is in the atlas
+    public AtlasRegion getRegion(String name) {
+        getAsset(name); // Fails the same way if it isn't loaded
+        return (AtlasRegion) regions.get(name);
+    }
+
+    // Where the frames of the animation asset name are in the atlas
+    public AtlasRegion[] getRegions(String name) {
+        getAsset(name);
+        return (AtlasRegion[]) regions.get(name);
+    }
+
+    // Where image is in the atlas, or null if it isn't a loaded asset (like a recolored copy of one)
+    public AtlasRegion getRegion(BufferedImage image) {
+        return imageRegions.get(image);
+    }
+
+    private AtlasRegion pack(BufferedImage image) {
+        if (image.getWidth() > MAX_PACKED_SIZE || image.getHeight() > MAX_PACKED_SIZE) {
+            return new AtlasRegion(image, 0, 0, image.getWidth(), image.getHeight());
+        }
+        return atlas.add(image);
+    }
+
     public void stop() {
         executor.shutdownNow();
         unload();
@@ -93,6 +177,9 @@ public class AssetManager {
     public void unload() {
         if (isAvailable()) {
             assets.clear();
+            regions.clear();
+            imageRegions.clear();
+            atlas.clear();
         } else {
             System.err.println("Error: cannot unload assets while loader is running.");
             System.exit(1);
@@ -102,7 +189,14 @@ public class AssetManager {
     public void unload(String[] fileNames) {
         if (isAvailable()) {
             for (String fileName : fileNames) {
-                assets.remove(fileName);
+                Object asset = assets.remove(fileName);
+                if (asset instanceof BufferedImage) {
+                    imageRegions.remove(asset);
+                } else if (asset instanceof BufferedImage[]) {
+                    for (BufferedImage frame : (BufferedImage[]) asset) {
+                        imageRegions.remove(frame);
+                    }
+                }
             }
         } else {
             System.err.println("Error: cannot unload assets while loader is running.");
@@ -16,7 +16,7 @@ import java.util.concurrent.*;
 public class AudioManager implements Runnable {
 
     private static final int MAX_QUEUE_AMOUNT = 64;
-    private boolean running;
+    private boolean running, muted;
     private volatile double musicVolume, SFXVolume;
 
     private BlockingQueue<AudioClip> clips;
@@ -26,9 +26,16 @@ public class AudioManager implements Runnable {
     private ExecutorService backgroundPlayer;
 
     AudioManager() {
+        this(false);
+    }
+
+    // A muted manager never touches JavaFX and ignores everything it's asked to play
+    AudioManager(boolean _muted) {
         clips = new ArrayBlockingQueue<>(MAX_QUEUE_AMOUNT);
 
         running = true;
+        muted = _muted;
+        if (muted) return;
 
         // Wait for JavaFX to initialize
         final CountDownLatch latch = new CountDownLatch(1);
@@ -56,6 +63,8 @@ public class AudioManager implements Runnable {
     }
 
     public void playSong(Media source, String name) {
+        if (muted) return;
+
         if (!name.equals(background)) {
             background = name;
 
@@ -76,6 +85,8 @@ public class AudioManager implements Runnable {
     }
 
     public void playSFX(AudioClip source) {
+        if (muted || source == null) return;
+
         try {
             clips.put(source);
         } catch (InterruptedException e) {
@@ -0,0 +1,253 @@
+package Main;
+
+import Entities.ProjectileStore;
+import GameState.GameStateManager;
+import GameState.PlayState;
+import UI.MouseCursor;
+import Util.MyInputEvent;
+import Util.Profiler;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Main/
+ * Measures how fast seeded levels update with no window, and prints the results as CSV or JSON.
+ */
+class Benchmark {
+
+    // Usage: java -Djava.awt.headless=true Main.Benchmark [levels] [ticks] [difficulty] [seed] [csv|json]
+    // Level i is generated from seed + i at the given difficulty (the level number, 1 to PlayState.MAXLEVEL),
+    // and updated ticks times with a deltaTime of 1 while an InputBot plays it, like HeadlessGame.
+    // Every update is timed, along with the sections Profiler knows about, and for each level
+    // (and then all of them together) the output has the updates per second, the p50, p99 and max
+    // update times in milliseconds, the allocation rate in MB/s of the main thread, and the most
+    // projectiles alive at once and how many times the ProjectileStore arrays had to grow.
+    // Before the first level, the level from seed + levels is played and thrown away to warm up the JIT.
+    // It has to be seeded too, so it can't use -1, which PlayState takes to mean a random level.
+    // The output goes to the console, anything else the game prints goes to the log as usual.
+
+    private static final int WARMUP_TICKS = 2000;
+
+    private static final String[] COLUMNS = {"updates_per_s", "p50_ms", "p99_ms", "max_ms", "alloc_mb_per_s"};
+    private static final String[] PROJECTILE_COLUMNS = {"projectiles.high_water", "projectiles.grows"};
+
+    private AssetManager assetManager;
+    private GameStateManager gsm;
+    private InputBot bot;
+
+    private int difficulty;
+    private long clock;
+
+    private Benchmark(int _difficulty, long seed) {
+        difficulty = _difficulty;
+
+        assetManager = new AssetManager(false);
+        gsm = new GameStateManager(assetManager, new AudioManager(true), new GraphicsManager());
+        gsm.cursor = new MouseCursor();
+
+        bot = new InputBot(seed);
+    }
+
+    // Plays the level from seed for ticks updates, recording the time of every update
+    // (in the first row) and of every profiled section (in the rows after that),
+    // and the bytes allocated by the update and by each section, and the projectile store's
+    // high water mark and number of grows (added up over the stores of every restart)
+    private void play(long seed, int ticks, long[][] times, long[] bytes, int[] projectileCounts) {
+        OutputManager.setSetting("level", difficulty);
+
+        PlayState state = new PlayState(gsm, seed);
+        state.load();
+        assetManager.awaitAvailable();
+        state.init();
+        bot.reset();
+
+        ProjectileStore projectiles = null;
+
+        for (int tick = 0; tick < ticks; tick++) {
+            Game.setSimulatedTime(clock);
+            clock += Game.MS_PER_UPDATE;
+
+            for (MyInputEvent event : bot.getEvents(tick)) {
+                state.inputHandle(event);
+            }
+
+            Profiler.reset();
+            long startBytes = Profiler.allocatedBytes(), start = System.nanoTime();
+
+            state.update(1.0);
+
+            times[0][tick] = System.nanoTime() - start;
+            bytes[0] += Profiler.allocatedBytes() - startBytes;
+            for (int i = 0; i < Profiler.SECTIONS; i++) {
+                times[i + 1][tick] = Profiler.getTime(i);
+                bytes[i + 1] += Profiler.getBytes(i);
+            }
+
+            // Restarting after dying makes a new store
+            ProjectileStore store = state.getEntityManager().getProjectiles();
+            if (store != projectiles) {
+                if (projectiles != null) projectileCounts[1] += projectiles.getGrows();
+                projectiles = store;
+            }
+            projectileCounts[0] = Math.max(projectileCounts[0], store.getHighWater());
+
+            // The level was cleared, which opens the next level screen (and moves the level on),
+            // but keep updating the empty level so that every level is the same length
+            if (gsm.hasState(GameStateManager.TOP)) {
+                gsm.unloadState(GameStateManager.TOP);
+                OutputManager.setSetting("level", difficulty);
+            }
+        }
+
+        if (projectiles != null) projectileCounts[1] += projectiles.getGrows();
+
+        state.unload();
+    }
+
+    // One row of results: updates per second, then each column of COLUMNS after that for
+    // the whole update and then each section, then the PROJECTILE_COLUMNS
+    private static double[] stats(long[][] times, long[] bytes, int[] projectileCounts) {
+        int ticks = times[0].length;
+        double seconds = 0;
+        for (long t : times[0]) seconds += t / 1.0e9;
+
+        double[] row = new double[1 + (COLUMNS.length - 1) * times.length + PROJECTILE_COLUMNS.length];
+        row[0] = ticks / seconds;
+
+        for (int i = 0; i < times.length; i++) {
+            long[] sorted = Arrays.copyOf(times[i], ticks);
+            Arrays.sort(sorted);
+
+            int j = 1 + i * (COLUMNS.length - 1);
+            row[j] = percentile(sorted, 0.5) / 1.0e6;
+            row[j + 1] = percentile(sorted, 0.99) / 1.0e6;
+            row[j + 2] = sorted[ticks - 1] / 1.0e6;
+            row[j + 3] = bytes[i] / (1024.0 * 1024.0) / seconds;
+        }
+
+        row[row.length - 2] = projectileCounts[0];
+        row[row.length - 1] = projectileCounts[1];
+
+        return row;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    // Names of the values in a stats() row
+    private static List<String> columnNames() {
+        List<String> names = new ArrayList<>();
+        names.add(COLUMNS[0]);
+
+        String[] sections = new String[Profiler.SECTIONS + 1];
+        sections[0] = "update";
+        System.arraycopy(Profiler.NAMES, 0, sections, 1, Profiler.SECTIONS);
+
+        for (String section : sections) {
+            for (int c = 1; c < COLUMNS.length; c++) {
+                names.add(section + "." + COLUMNS[c]);
+            }
+        }
+        names.addAll(Arrays.asList(PROJECTILE_COLUMNS));
+        return names;
+    }
+
+    private static void printCSV(PrintStream out, List<String> labels, long[] seeds, List<double[]> rows, int ticks, int difficulty) {
+        List<String> names = columnNames();
+
+        out.print("level,seed,difficulty,ticks");
+        for (String name : names) out.print("," + name);
+        out.println();
+
+        for (int r = 0; r < rows.size(); r++) {
+            out.print(labels.get(r) + "," + (r < seeds.length ? seeds[r] : "") + "," + difficulty + "," + ticks);
+            for (double value : rows.get(r)) out.print("," + String.format("%.4f", value));
+            out.println();
+        }
+    }
+
+    private static void printJSON(PrintStream out, List<String> labels, long[] seeds, List<double[]> rows, int ticks, int difficulty) {
+        List<String> names = columnNames();
+
+        out.println("[");
+        for (int r = 0; r < rows.size(); r++) {
+            StringBuilder line = new StringBuilder("  {\"level\": \"" + labels.get(r) + "\"");
+            if (r < seeds.length) line.append(", \"seed\": ").append(seeds[r]);
+            line.append(", \"difficulty\": ").append(difficulty).append(", \"ticks\": ").append(ticks);
+
+            double[] row = rows.get(r);
+            for (int i = 0; i < row.length; i++) {
+                line.append(", \"").append(names.get(i)).append("\": ").append(String.format("%.4f", row[i]));
+            }
+            line.append(r < rows.size() - 1 ? "}," : "}");
+            out.println(line);
+        }
+        out.println("]");
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        // OutputManager sends System.out to the log file, so keep hold of the real console
+        PrintStream console = new PrintStream(new FileOutputStream(FileDescriptor.out), true);
+
+        int levels = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int difficulty = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        boolean json = args.length > 4 && args[4].equals("json");
+
+        Benchmark benchmark = new Benchmark(difficulty, seed);
+
+        int rows = Profiler.SECTIONS + 1;
+        Profiler.setEnabled(true);
+        benchmark.play(seed + levels, WARMUP_TICKS, new long[rows][WARMUP_TICKS], new long[rows], new int[2]);
+
+        List<String> labels = new ArrayList<>();
+        List<double[]> results = new ArrayList<>();
+        long[] seeds = new long[levels];
+        long[][] allTimes = new long[rows][levels * ticks];
+        long[] allBytes = new long[rows];
+        int[] allProjectileCounts = new int[2];
+
+        for (int l = 0; l < levels; l++) {
+            seeds[l] = seed + l;
+
+            long[][] times = new long[rows][ticks];
+            long[] bytes = new long[rows];
+            int[] projectileCounts = new int[2];
+            benchmark.play(seeds[l], ticks, times, bytes, projectileCounts);
+
+            labels.add(Integer.toString(l));
+            results.add(stats(times, bytes, projectileCounts));
+
+            allProjectileCounts[0] = Math.max(allProjectileCounts[0], projectileCounts[0]);
+            allProjectileCounts[1] += projectileCounts[1];
+
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(times[i], 0, allTimes[i], l * ticks, ticks);
+                allBytes[i] += bytes[i];
+            }
+        }
+
+        labels.add("all");
+        results.add(stats(allTimes, allBytes, allProjectileCounts));
+
+        if (json) {
+            printJSON(console, labels, seeds, results, ticks, difficulty);
+        } else {
+            printCSV(console, labels, seeds, results, ticks, difficulty);
+        }
+
+        System.out.println("--- LOG END at " + OutputManager.currentTime() + " ---");
+        System.exit(0);
+    }
+
+}
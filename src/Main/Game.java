@@ -12,6 +12,14 @@ import java.awt.event.WindowEvent;
 
 public class Game {
 
+    public static final double MS_PER_UPDATE = 16;
+
+    // If the updates fall further behind than this, the rest is skipped instead of caught up on
+    private static final int MAX_CATCH_UP = 5;
+
+    // If not negative, currentTimeMillis() returns this instead of the real time
+    private static volatile long simulatedTime = -1;
+
     // Manager stuff
     private AssetManager assetManager;
     private GraphicsManager graphicsManager;
@@ -44,29 +52,38 @@ public class Game {
 
     }
 
+    // Updates at a fixed rate on this thread, while the graphics thread renders as fast as it can.
+    // The render thread draws from whatever the last update published (see PlayState), so the two
+    // only wait on each other around the parts of drawing that don't use snapshots
     public void run() {
 
-        double previous = System.currentTimeMillis();
-        double lag = 0.0;
-        final double MS_PER_UPDATE = 16;
+        //RENDER
+        graphicsManager.start(window, gsm);
+
+        long tickNanos = (long) (MS_PER_UPDATE * 1.0e6);
+        long next = System.nanoTime();
 
         while (gsm.running) {
-            double current = System.currentTimeMillis();
-            double elapsed = current - previous;
-            previous = current;
-            lag += elapsed;
 
             //UPDATE
-            if (lag >= MS_PER_UPDATE) {
-                gsm.update(elapsed / MS_PER_UPDATE);
+            synchronized (gsm) {
+                gsm.update(1.0);
 
                 gsm.inputHandle(inputManager.getEvents());
-
-                lag -= MS_PER_UPDATE;
             }
 
-            //RENDER
-            window.render(gsm);
+            next += tickNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    Thread.interrupted();
+                    break;
+                }
+            } else if (wait < -MAX_CATCH_UP * tickNanos) {
+                next = System.nanoTime();
+            }
         }
 
 //        int FPS = 60;
@@ -113,8 +130,18 @@ public class Game {
 
     }
 
+    // Makes the game's clock read millis from now on, for running faster (or slower) than real time
+    static void setSimulatedTime(long millis) {
+        simulatedTime = millis;
+    }
+
+    // Whether the game was started with -Dwarmvector-debug=true
+    public static boolean isDebug() {
+        return Main.DEBUG;
+    }
+
     public static int currentTimeMillis() {
-        long millisLong = System.currentTimeMillis();
+        long millisLong = simulatedTime >= 0 ? simulatedTime : System.currentTimeMillis();
         while (millisLong > Integer.MAX_VALUE) {
             millisLong -= Integer.MAX_VALUE;
         }
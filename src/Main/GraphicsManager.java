@@ -1,12 +1,6 @@
 package Main;
 
-import UI.Sprite;
-
-import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import GameState.GameStateManager;
 
 /**
  * Directory: WarmVector_Client_Singleplayer/Main/
@@ -14,71 +8,46 @@ import java.util.concurrent.BlockingQueue;
  */
 public class GraphicsManager implements Runnable {
 
-    // TODO: Graphics2D should only reside in here??
-    // TODO: make it a seperate thread??? (these will be VERY difficult to do)
-
-    private boolean running;
-    private BlockingQueue<Sprite> queue;
-    private List<Sprite> sprites;
+    // The render thread: draws the game states into the window over and over until stopped,
+    // while Game keeps updating them on its own thread
 
-    GraphicsManager() {
-        queue = new ArrayBlockingQueue<>(64);
+    private volatile boolean running;
+    private Thread thread;
 
-        running = true;
-        sprites = new ArrayList<>();
-    }
+    private Window window;
+    private GameStateManager gsm;
 
-    public void stop() {
+    GraphicsManager() {
         running = false;
     }
 
-    public void put(Sprite sprite) {
-        try {
-            queue.put(sprite);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            System.err.println("Error: failed to queue sprite");
-        }
-    }
+    void start(Window _window, GameStateManager _gsm) {
+        window = _window;
+        gsm = _gsm;
 
-    public void draw(Graphics2D g) {
-        for (Sprite s : sprites) {
-            s.draw(g);
-        }
+        running = true;
+        thread = new Thread(this, "graphics");
+        thread.start();
     }
 
-    private void addSprite(Sprite sprite) {
-
-        int layer = sprite.layer;
+    // Stops rendering, and waits for the frame being drawn to finish
+    public void stop() {
+        running = false;
 
-        for (int i = 0; i < sprites.size(); i++) {
-            if (sprites.get(i).layer > layer) {
-                sprites.add(i, sprite);
-                return;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                System.err.println("Error: interrupted while stopping the render thread");
             }
         }
-        sprites.add(sprite);
-    }
-
-    public void update() {
-        for (int i = sprites.size() - 1; i >= 0; i--) {
-            if (!sprites.get(i).state) sprites.remove(i);
-        }
     }
 
     @Override
     public void run() {
-        while(running) {
-            if (!queue.isEmpty()) {
-                try {
-                    addSprite(queue.take());
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                    System.err.println("Error while taking item from queue.");
-                }
-            }
-
-            //draw g
+        while (running) {
+            window.render(gsm);
         }
     }
 
@@ -0,0 +1,94 @@
+package Main;
+
+import GameState.GameStateManager;
+import UI.MouseCursor;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Main/
+ * Runs the game with no window, sound or real clock, played by a bot, for soak tests and measurements.
+ */
+class HeadlessGame {
+
+    // Usage: java -Djava.awt.headless=true Main.HeadlessGame [ticks] [level] [bot seed]
+    // The play state is updated as fast as possible with a deltaTime of 1 (one normal 16ms update),
+    // and the game's clock moves forward 16ms per update instead of following the real time.
+    // Nothing is ever drawn, and the input comes from an InputBot.
+    // Clearing a level skips the menus and goes straight to the next one.
+    // Settings aren't saved at the end, and the summary is printed to the console rather than the log.
+
+    private AssetManager assetManager;
+    private GameStateManager gsm;
+
+    private InputBot bot;
+
+    private HeadlessGame(int level, long seed) {
+        OutputManager.setSetting("level", level);
+
+        assetManager = new AssetManager(false);
+        AudioManager audioManager = new AudioManager(true);
+
+        gsm = new GameStateManager(assetManager, audioManager, new GraphicsManager());
+        gsm.cursor = new MouseCursor();
+
+        bot = new InputBot(seed);
+    }
+
+    private void run(long ticks, PrintStream console) {
+
+        Game.setSimulatedTime(0);
+        startLevel();
+
+        int levels = 0;
+        long start = System.nanoTime();
+
+        for (long tick = 0; tick < ticks && gsm.running; tick++) {
+            Game.setSimulatedTime((long) (tick * Game.MS_PER_UPDATE));
+
+            gsm.update(1.0);
+            gsm.inputHandle(bot.getEvents(tick));
+
+            // A level was cleared and the next level screen opened on top
+            if (gsm.hasState(GameStateManager.TOP)) {
+                gsm.unloadState(GameStateManager.TOP);
+                startLevel();
+                levels++;
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1.0e9;
+        console.println(String.format("%d updates in %.2fs (%.0f updates/s, %.3fms each), %d levels cleared",
+                ticks, seconds, ticks / seconds, seconds * 1000.0 / ticks, levels));
+    }
+
+    private void startLevel() {
+        gsm.setState(GameStateManager.PLAY, GameStateManager.MAIN);
+
+        // Let the loading state finish so that the first timed update is a real one
+        assetManager.awaitAvailable();
+        gsm.update(0.0);
+
+        bot.reset();
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        // OutputManager sends System.out to the log file, so keep hold of the real console
+        PrintStream console = new PrintStream(new FileOutputStream(FileDescriptor.out), true);
+
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+        int level = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        HeadlessGame game = new HeadlessGame(level, seed);
+        game.run(ticks, console);
+
+        System.out.println("--- LOG END at " + OutputManager.currentTime() + " ---");
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,82 @@
+package Main;
+
+import Util.MyInputEvent;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Main/
+ * Plays the game in place of the keyboard and mouse, for running without a window.
+ */
+class InputBot {
+
+    // Every update the bot makes the events a player would have made since the last one.
+    // It wanders, aims and shoots at random (but the same way for the same seed), and keeps
+    // pressing restart, which only does anything once the player is dead.
+
+    private static final int
+            // How many updates the bot keeps doing the same thing for
+            MOVE_PERIOD = 30,
+            SHOOT_PERIOD = 45,
+            RESTART_PERIOD = 60;
+
+    private Random random;
+    private boolean left, right, up, down, shooting;
+    private double aim;
+
+    InputBot(long seed) {
+        random = new Random(seed);
+    }
+
+    // Forgets which keys are held, for when a new play state starts
+    void reset() {
+        left = right = up = down = shooting = false;
+    }
+
+    ArrayList<MyInputEvent> getEvents(long tick) {
+        ArrayList<MyInputEvent> events = new ArrayList<>();
+
+        if (tick % MOVE_PERIOD == 0) {
+            left = setKey(events, KeyEvent.VK_A, left, random.nextInt(3) == 0);
+            right = setKey(events, KeyEvent.VK_D, right, !left && random.nextInt(2) == 0);
+            up = setKey(events, KeyEvent.VK_W, up, random.nextInt(3) == 0);
+            down = setKey(events, KeyEvent.VK_S, down, !up && random.nextInt(2) == 0);
+
+            if (random.nextInt(4) == 0) events.add(new MyInputEvent(MyInputEvent.KEY_DOWN, KeyEvent.VK_R));
+            if (random.nextInt(8) == 0) events.add(new MyInputEvent(MyInputEvent.MOUSE_DOWN, MouseEvent.BUTTON3));
+        }
+
+        if (tick % SHOOT_PERIOD == 0) {
+            boolean shoot = random.nextInt(3) != 0;
+            if (shoot != shooting) {
+                shooting = shoot;
+                events.add(new MyInputEvent(shoot ? MyInputEvent.MOUSE_DOWN : MyInputEvent.MOUSE_UP, MouseEvent.BUTTON1));
+            }
+        }
+
+        // Sweep the cursor around the middle of the screen
+        aim += random.nextDouble() * 0.1 - 0.03;
+        double radius = Window.HEIGHT * 0.3;
+        events.add(new MyInputEvent(MyInputEvent.MOUSE_MOVE,
+                (int) (Window.WIDTH * 0.5 + radius * Math.cos(aim)),
+                (int) (Window.HEIGHT * 0.5 + radius * Math.sin(aim))));
+
+        if (tick % RESTART_PERIOD == 0) {
+            events.add(new MyInputEvent(MyInputEvent.KEY_DOWN, KeyEvent.VK_SPACE));
+        }
+
+        return events;
+    }
+
+    // Adds a key event if the key changes, returns the new state
+    private boolean setKey(ArrayList<MyInputEvent> events, int key, boolean wasDown, boolean down) {
+        if (down != wasDown) {
+            events.add(new MyInputEvent(down ? MyInputEvent.KEY_DOWN : MyInputEvent.KEY_UP, key));
+        }
+        return down;
+    }
+
+}
@@ -24,7 +24,6 @@ class Main {
         Game game = new Game(audioManager, graphicsManager);
 
         new Thread(audioManager, "audio").start();
-        new Thread(graphicsManager, "graphics").start();
         game.run();
     }
 
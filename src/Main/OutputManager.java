@@ -2,6 +2,7 @@ package Main;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileSystemView;
+import java.awt.GraphicsEnvironment;
 import java.io.*;
 import java.nio.file.Files;
 import java.text.DateFormat;
@@ -185,8 +186,12 @@ public class OutputManager {
     }
 
     public static void fatalAlert(String msg) {
-        JOptionPane.showMessageDialog(null, msg,
-                "Error", JOptionPane.ERROR_MESSAGE);
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println(msg);
+        } else {
+            JOptionPane.showMessageDialog(null, msg,
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
         
         System.exit(1);
     }
@@ -28,16 +28,22 @@ public class Window {
         OS = System.getProperty("os.name");
 
         // Dimensions
-        GraphicsEnvironment env = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        device = env.getDefaultScreenDevice();
-        if (!device.isFullScreenSupported() || OS.equals("Linux")) {
-            Rectangle winSize = env.getMaximumWindowBounds();
-            WIDTH = winSize.width;
-            HEIGHT = winSize.height;
+        if (GraphicsEnvironment.isHeadless()) {
+            // There is no screen to measure (see HeadlessGame), so act like a 1080p one
+            WIDTH = 1920;
+            HEIGHT = 1080;
         } else {
-            Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-            WIDTH = (int) screenSize.getWidth();
-            HEIGHT = (int) screenSize.getHeight();
+            GraphicsEnvironment env = GraphicsEnvironment.getLocalGraphicsEnvironment();
+            device = env.getDefaultScreenDevice();
+            if (!device.isFullScreenSupported() || OS.equals("Linux")) {
+                Rectangle winSize = env.getMaximumWindowBounds();
+                WIDTH = winSize.width;
+                HEIGHT = winSize.height;
+            } else {
+                Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+                WIDTH = (int) screenSize.getWidth();
+                HEIGHT = (int) screenSize.getHeight();
+            }
         }
 
         SCALE = HEIGHT / 1080.0;
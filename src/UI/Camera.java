@@ -20,6 +20,14 @@ public class Camera {
 
     public double displayX, displayY;
 
+    // How many things were drawn and skipped by shouldDraw() since the last resetCounts()
+    private int drawn, culled;
+
+    // Camera that doesn't follow anyone, whoever draws with it sets displayX and displayY
+    public Camera() {
+        this(null);
+    }
+
     public Camera(Player _follower) {
         follower = _follower;
 
@@ -39,6 +47,48 @@ public class Camera {
 
     }
 
+    // The part of the world that is on screen, in world units
+
+    public double getViewX() {
+        return -displayX;
+    }
+
+    public double getViewY() {
+        return -displayY;
+    }
+
+    public double getViewWidth() {
+        return Window.WIDTH * scaleDivide;
+    }
+
+    public double getViewHeight() {
+        return Window.HEIGHT * scaleDivide;
+    }
+
+    // Returns whether anything within radius of (x, y) is on screen, and counts it as drawn or culled
+    public boolean shouldDraw(double x, double y, double radius) {
+        double viewX = -displayX, viewY = -displayY;
+        if (x + radius < viewX || y + radius < viewY ||
+                x - radius > viewX + getViewWidth() || y - radius > viewY + getViewHeight()) {
+            culled++;
+            return false;
+        }
+        drawn++;
+        return true;
+    }
+
+    public void resetCounts() {
+        drawn = culled = 0;
+    }
+
+    public int getDrawnCount() {
+        return drawn;
+    }
+
+    public int getCulledCount() {
+        return culled;
+    }
+
     private void updateVelocity() {
 
 
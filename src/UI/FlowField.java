@@ -0,0 +1,178 @@
+package UI;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * Distance to the player over a coarse grid of the map, shared by every chasing enemy.
+ */
+public class FlowField {
+
+    // Each cell stores how many steps (up, down, left or right) it is from the target's cell,
+    // found with a breadth first search over the open cells. To follow the field, move towards
+    // the neighbouring cell with the smallest distance.
+    // The search is only redone when the target moves into another cell. Explosions only ever
+    // open up space, so after one the distances can only shrink, and they are fixed by
+    // relaxing outwards from the newly opened cells instead of searching everything again.
+    // The field is only changed between enemy updates, so enemies can read it from several threads.
+
+    // Size of one (square) cell in world units
+    public static final double CELL_SIZE = 24.0;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    // Neighbour offsets, the first four are the ones the search steps through
+    private static final int[] DC = {1, -1, 0, 0, 1, 1, -1, -1},
+            DR = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final OccupancyGrid occupancy;
+    private final double clearance;
+    private final int cols, rows;
+    private final boolean[] open;
+    private final int[] dist;
+
+    // Circular queue for the search, inQueue stops a cell being queued twice
+    private final int[] queue;
+    private final boolean[] inQueue;
+
+    private int targetCell;
+    private double targetX, targetY;
+
+    // clearance is the size of the (square) box that has to fit in the middle of a cell for it to be open,
+    // so that the field only leads enemies through gaps they can fit through
+    public FlowField(OccupancyGrid _occupancy, double width, double height, double _clearance) {
+        occupancy = _occupancy;
+        clearance = _clearance;
+        cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+
+        open = new boolean[cols * rows];
+        dist = new int[cols * rows];
+        queue = new int[cols * rows];
+        inQueue = new boolean[cols * rows];
+
+        for (int i = 0; i < open.length; i++) {
+            open[i] = checkOpen(i % cols, i / cols);
+            dist[i] = UNREACHED;
+        }
+
+        targetCell = -1;
+    }
+
+    // Moves the target, searching again if it moved into another cell
+    public void setTarget(double x, double y) {
+        targetX = x;
+        targetY = y;
+
+        int cell = cellAt(x, y);
+        if (cell == targetCell) return;
+        targetCell = cell;
+
+        for (int i = 0; i < dist.length; i++) {
+            dist[i] = UNREACHED;
+        }
+        if (cell == -1) return;
+
+        dist[cell] = 0;
+        relax(cell);
+    }
+
+    // Rechecks the cells inside bounds after part of the map was carved out
+    public void carve(Rectangle2D bounds) {
+        // The box checked for a cell reaches past the cell, so cells just outside bounds can open up too
+        double reach = clearance * 0.5;
+        int c0 = Math.max(0, (int) Math.floor((bounds.getMinX() - reach) / CELL_SIZE)),
+                r0 = Math.max(0, (int) Math.floor((bounds.getMinY() - reach) / CELL_SIZE)),
+                c1 = Math.min(cols - 1, (int) Math.floor((bounds.getMaxX() + reach) / CELL_SIZE)),
+                r1 = Math.min(rows - 1, (int) Math.floor((bounds.getMaxY() + reach) / CELL_SIZE));
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int i = r * cols + c;
+                if (open[i] || !checkOpen(c, r)) continue;
+
+                open[i] = true;
+
+                // Start from the nearest neighbour that has already been reached
+                for (int k = 0; k < 4; k++) {
+                    int n = neighbour(c, r, k);
+                    if (n != -1 && dist[n] != UNREACHED && dist[n] + 1 < dist[i]) dist[i] = dist[n] + 1;
+                }
+                if (dist[i] != UNREACHED) relax(i);
+            }
+        }
+    }
+
+    // Spreads the distance of start to every open cell it makes closer (a breadth first search)
+    private void relax(int start) {
+        int head = 0, size = 0;
+        queue[0] = start;
+        inQueue[start] = true;
+        size++;
+
+        while (size > 0) {
+            int c = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            inQueue[c] = false;
+
+            int col = c % cols, row = c / cols, d = dist[c] + 1;
+            for (int k = 0; k < 4; k++) {
+                int n = neighbour(col, row, k);
+                if (n != -1 && open[n] && d < dist[n]) {
+                    dist[n] = d;
+                    if (!inQueue[n]) {
+                        queue[(head + size) % queue.length] = n;
+                        inQueue[n] = true;
+                        size++;
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the angle to move in from (x, y) to get closer to the target,
+    // or NaN if there is no path from here
+    public double directionAt(double x, double y) {
+        int cell = cellAt(x, y);
+        if (cell == -1 || targetCell == -1) return Double.NaN;
+
+        if (cell == targetCell) return Math.atan2(targetY - y, targetX - x);
+
+        int col = cell % cols, row = cell / cols;
+        int best = -1, bestDist = dist[cell];
+        for (int k = 0; k < 8; k++) {
+            int n = neighbour(col, row, k);
+            if (n == -1 || dist[n] >= bestDist) continue;
+
+            // Don't cut across a corner diagonally
+            if (k >= 4 && (!open[row * cols + col + DC[k]] || !open[(row + DR[k]) * cols + col])) continue;
+
+            best = n;
+            bestDist = dist[n];
+        }
+
+        if (best == -1) return Double.NaN;
+
+        return Math.atan2((best / cols + 0.5) * CELL_SIZE - y, (best % cols + 0.5) * CELL_SIZE - x);
+    }
+
+    private boolean checkOpen(int col, int row) {
+        double x = (col + 0.5) * CELL_SIZE - clearance * 0.5, y = (row + 0.5) * CELL_SIZE - clearance * 0.5;
+        return !occupancy.isBlocked(x, y, clearance, clearance);
+    }
+
+    // Index of neighbour k of the cell at (col, row), or -1 if it's off the grid
+    private int neighbour(int col, int row, int k) {
+        int c = col + DC[k], r = row + DR[k];
+        if (c < 0 || c >= cols || r < 0 || r >= rows) return -1;
+        return r * cols + c;
+    }
+
+    private int cellAt(double x, double y) {
+        int c = (int) Math.floor(x / CELL_SIZE), r = (int) Math.floor(y / CELL_SIZE);
+        if (c < 0 || c >= cols || r < 0 || r >= rows) return -1;
+        return r * cols + c;
+    }
+
+}
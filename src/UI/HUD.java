@@ -55,7 +55,11 @@ public class HUD {
     private static final Font HUD_FONT = new Font("Dotum Bold", Font.BOLD, (int)(crossWidth * 1.3));
 
 
+    // Enemies are only shown on the mini map when there are this many or fewer
+    public static final int MINIMAP_ENEMIES = 3;
+
     // Private variables
+    private Map map;
     private Area mapArea;
     private Player user;
     private List<Enemy> enemies;
@@ -66,12 +70,36 @@ public class HUD {
 
         user = _entityManager.getThisPlayer();
 
+        map = _map;
         mapArea = _map.region;
     }
 
-    public void draw(Graphics2D g) {
-        if (user.state) {
-            drawHud(g);
+    // Copies what the HUD shows into the snapshot, on the update thread
+    public void snapshot(RenderSnapshot s) {
+        s.hud = this;
+        s.alive = user.state;
+        s.weaponName = user.weapon == null ? null : user.weapon.name;
+        if (user.weapon != null) {
+            s.ammo = user.weapon.ammo;
+            s.reserveAmmo = user.weapon.reserveAmmo;
+        }
+        s.life = user.life;
+        s.maxLife = user.maxLife;
+        s.playerX = user.x;
+        s.playerY = user.y;
+        s.enemyCount = enemies.size();
+
+        s.shownEnemies = enemies.size() <= MINIMAP_ENEMIES ? enemies.size() : 0;
+        for (int i = 0; i < s.shownEnemies; i++) {
+            s.enemyX[i] = enemies.get(i).x;
+            s.enemyY[i] = enemies.get(i).y;
+        }
+    }
+
+    // Draws the HUD from a snapshot, on the render thread
+    public void draw(Graphics2D g, RenderSnapshot s) {
+        if (s.alive) {
+            drawHud(g, s);
         } else {
             g.setColor(ButtonUI.COLOR_DEFAULT);
             g.setFont(ButtonUI.BUTTON_FONT);
@@ -80,30 +108,40 @@ public class HUD {
         }
     }
 
-    public void drawHud(Graphics2D g) {
+    // Draws how many things the camera drew and culled this frame, in the top right corner
+    public void drawDebug(Graphics2D g, Camera camera) {
+        g.setFont(HUD_FONT);
+        g.setColor(defaultHudColor);
+
+        String countS = "Drawn: " + camera.getDrawnCount() + " Culled: " + camera.getCulledCount();
+        Rectangle2D countBounds = textBounds(countS, g);
+        g.drawString(countS, (int)(Window.WIDTH - countBounds.getWidth() - hudOffset), (int)(hudOffset + countBounds.getHeight()));
+    }
+
+    public void drawHud(Graphics2D g, RenderSnapshot s) {
 
         g.setFont(HUD_FONT);
         g.setColor(defaultHudColor);
 
         //AMMO
-        if (user.weapon != null) {
-            String ammoS = user.weapon.name + " Ammo: " + user.weapon.ammo + " / " + user.weapon.reserveAmmo;
+        if (s.weaponName != null) {
+            String ammoS = s.weaponName + " Ammo: " + s.ammo + " / " + s.reserveAmmo;
             Rectangle2D ammoBounds = textBounds(ammoS, g);
             g.drawString(ammoS, (int)(Main.Window.WIDTH - ammoBounds.getWidth() - hudOffset), (int)(hudY + ammoBounds.getHeight() * 0.3));
         }
 
         //LIFE
-        if (user.life <= 10) g.setColor(nearDeathHudColor);
+        if (s.life <= 10) g.setColor(nearDeathHudColor);
 
         //LIFE AMOUNT
-        String lifeS = String.valueOf((int) user.life);
+        String lifeS = String.valueOf((int) s.life);
         g.drawString(lifeS, (int)(lifeBar_x + lifeBar_w + hudOffset), (int)(hudY + textBounds(lifeS, g).getHeight() * 0.3));
 
         //HEALTH BAR
         g.setStroke(new BasicStroke(2));
         g.drawRect((int)(lifeBar_x), (int)(lifeBar_y), (int)(lifeBar_w), (int)(lifeBar_h));
         g.setStroke(new BasicStroke(1));
-        g.fillRect((int)(lifeBar_x +lifeBar_offset), (int)(lifeBar_y + lifeBar_offset), (int) (user.life * lifeBar_w / user.maxLife - 2.0 * lifeBar_offset), (int)(lifeBar_h - 2.0 * lifeBar_offset));
+        g.fillRect((int)(lifeBar_x +lifeBar_offset), (int)(lifeBar_y + lifeBar_offset), (int) (s.life * lifeBar_w / s.maxLife - 2.0 * lifeBar_offset), (int)(lifeBar_h - 2.0 * lifeBar_offset));
 
         //CROSS SYMBOL
         g.fill(cross);
@@ -115,7 +153,7 @@ public class HUD {
 
         //ENEMY COUNTER
         g.setColor(enemyCounterColor);
-        String enemiesS = String.valueOf(enemies.size());
+        String enemiesS = String.valueOf(s.enemyCount);
         Rectangle2D enemiesBounds = textBounds(enemiesS, g);
         g.drawString(enemiesS, (int)(Window.WIDTH * 0.5 - enemiesBounds.getWidth() * 0.5 - 2.0), (int) (hudY + enemiesBounds.getHeight() * 0.3));
 
@@ -125,29 +163,30 @@ public class HUD {
         g.translate(hudOffset, hudOffset);
         g.scale(miniMapScale, miniMapScale);
 
-        g.setColor(Color.gray);
-        g.fill(mapArea);
+        // Explosions change the map's area, see Map.applyExplosions()
+        synchronized (map) {
+            g.setColor(Color.gray);
+            g.fill(mapArea);
 
-        g.setStroke(new BasicStroke(6));
-        g.setColor(Color.white);
-        g.draw(mapArea);
+            g.setStroke(new BasicStroke(6));
+            g.setColor(Color.white);
+            g.draw(mapArea);
+        }
 
-        drawPlayer(user, g, Color.cyan);
+        drawPlayer(s.playerX, s.playerY, g, Color.cyan);
 
-        if (enemies.size() <= 3) {
-            for (Enemy enemy : enemies) {
-                drawPlayer(enemy, g, Color.red);
-            }
+        for (int i = 0; i < s.shownEnemies; i++) {
+            drawPlayer(s.enemyX[i], s.enemyY[i], g, Color.red);
         }
 
         g.setTransform(oldTransform);
 
     }
 
-    private void drawPlayer(Player p, Graphics2D g, Color c) {
+    private void drawPlayer(double x, double y, Graphics2D g, Color c) {
         g.setColor(c);
         g.setStroke(new BasicStroke(0));
-        g.fillOval(MyMath.round(p.x - playerDotSize * 0.25), MyMath.round(p.y - playerDotSize * 0.25), (int)playerDotSize, (int)playerDotSize);
+        g.fillOval(MyMath.round(x - playerDotSize * 0.25), MyMath.round(y - playerDotSize * 0.25), (int)playerDotSize, (int)playerDotSize);
     }
 
     private Rectangle2D textBounds(String text, Graphics2D g) {
@@ -1,10 +1,12 @@
 package UI;
 
 import Entities.Hittable;
+import Entities.Player.Enemy;
 import Entities.Projectile;
 import GameState.GameStateManager;
 import Util.ImageUtils;
 import Util.MyMath;
+import Util.Point;
 import Util.Rect;
 import javafx.scene.media.AudioClip;
 
@@ -21,8 +23,6 @@ import java.util.Random;
  * Created by wyatt on 8/27/2015.
  */
 
-//TODO: only render local region of map to reduce performance, but how???
-
 public class Map implements Hittable {
 
     // This class creates a randomly generated map, consisting of rooms with corridors connecting them.
@@ -45,13 +45,21 @@ public class Map implements Hittable {
             borderRegion, // Indestructible wall
             innerRegion;
     public List<Line2D> walls; //Stores line segments of map (these are used for shadowing, collision detection, etc.)
+    private WallGrid wallGrid; // Spatial index over walls, so queries only look at nearby segments
+    private List<Polygon> explosionQueue; // Explosions waiting to be carved out at the end of the tick
+    private OccupancyGrid occupancy; // Raster of inverseRegion, used for movement collision
+    private Point impact; // Reused by handleDirectHit to store where a projectile hit
+    public int geometryVersion; // Incremented every time the walls change
+    public NavGraph navGraph; // Paths between the rooms and corridors, for enemy AI
+    public FlowField flowField; // Directions towards the player, for enemy AI
+    private TerrainChunks terrain; // Cached drawing of inverseRegion, split into chunks
 
     //Private variables
     private int iterations;
 
     // Private constants
     private static final Color FILL_COLOR = new Color(50, 50, 50);
-    private static final Stroke STROKE = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    private static final BasicStroke STROKE = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
     private static final Color STROKE_COLOR = new Color(90, 90, 90);
     private static final double
             roomReductionFactor = 0.42,
@@ -67,6 +75,15 @@ public class Map implements Hittable {
     private static final boolean
             randomObstaclesOnEdges = true;
 
+    // How far explosion bounds are grown before their walls are re-outlined. Explosion corners are whole numbers
+    // and generated walls lie on multiples of 12 / 64 = 3 / 16 (scale, then smoothing), so a wall can be on any
+    // sixteenth. Padding by 1 + 9 / 32 puts the sides halfway between two sixteenths, 1 / 32 = 0.03125 off of any
+    // wall, far more than BORDER_TOLERANCE, and an edge along them is never a real wall
+    private static final double DIRTY_PADDING = 1.28125;
+
+    // How close an edge of the re-outlined region has to be to a side of the padded rectangle to count as on it
+    private static final double BORDER_TOLERANCE = 1e-6;
+
     public BufferedImage background;
 
     private Random randomGenerate;
@@ -92,6 +109,9 @@ public class Map implements Hittable {
 
         randomGenerate = _randomGenerate;
 
+        explosionQueue = new ArrayList<>();
+        impact = new Point(0.0, 0.0);
+
         float randHue = (float) MyMath.random(0.0, 1.0, randomGenerate);
         fillColor = Color.getHSBColor(randHue, 1.0f, 0.06f);
         background = ImageUtils.colorizeImage((BufferedImage)gsm.assetManager.getAsset("background.png"), randHue);
@@ -227,9 +247,6 @@ public class Map implements Hittable {
         inverseRegion = new Area(totalArea);
         inverseRegion.subtract(region);
 
-        //Define the walls (used for shadowing) based on the new region
-        walls = calculateWalls(areaPoints);
-
         width *= scale;
         height *= scale;
 
@@ -240,6 +257,20 @@ public class Map implements Hittable {
             r.h *= scale;
         }
 
+        //Define the walls (used for shadowing) based on the new region,
+        //and index them (the region never leaves the inner bounds of the map)
+        walls = new ArrayList<>();
+        wallGrid = new WallGrid(0.0, 0.0, width, height);
+        for (Line2D w : calculateWalls(areaPoints)) {
+            addWall((WallGrid.Wall) w);
+        }
+
+        occupancy = new OccupancyGrid(inverseRegion, width, height);
+
+        navGraph = new NavGraph(cells);
+        flowField = new FlowField(occupancy, width, height, Enemy.SIZE);
+        terrain = new TerrainChunks(inverseRegion, innerRegion.getBounds2D(), fillColor, STROKE_COLOR, STROKE);
+
     }
 
     private ArrayList<Line2D> calculateWalls(List<double[]> areaPoints) {
@@ -267,14 +298,14 @@ public class Map implements Hittable {
 
             if (nextElement[0] == PathIterator.SEG_LINETO) {
                 walls.add(
-                        new Line2D.Double(
+                        new WallGrid.Wall(
                                 currentElement[1], currentElement[2],
                                 nextElement[1], nextElement[2]
                         )
                 );
             } else if (nextElement[0] == PathIterator.SEG_CLOSE) {
                 walls.add(
-                        new Line2D.Double(
+                        new WallGrid.Wall(
                                 currentElement[1], currentElement[2],
                                 start[1], start[2]
                         )
@@ -431,6 +462,7 @@ public class Map implements Hittable {
 
     }
 
+    // Queues a randomized explosion polygon, it is carved out of the map by applyExplosions()
     private void addExplosion(double x, double y, double radius, int vertices) {
 
 //        int[] x_points = {-2*radius, -radius, radius, 2*radius, 2*radius, radius, -radius, -2*radius};
@@ -449,16 +481,184 @@ public class Map implements Hittable {
             int py = (int) (Math.sin(angle) * length + y);
             explosion.addPoint(px, py);
         }
-        Area subtraction = new Area(explosion);
 
-        //Update the regions to accommodate the new explosion
-        region.add(subtraction);
-        region.subtract(borderRegion);
-        inverseRegion.subtract(subtraction);
-        inverseRegion.add(borderRegion);
+        explosionQueue.add(explosion);
+
+    }
+
+    // Carves every explosion queued during this tick out of the map at once:
+    // the polygons are unioned, subtracted from the regions in one operation, and the walls are
+    // recalculated once per group of overlapping explosions.
+    // Returns true if the map changed
+    public boolean applyExplosions() {
+
+        if (explosionQueue.isEmpty()) return false;
+
+        Area subtraction = new Area();
+        List<Rectangle2D> dirtyBounds = new ArrayList<>();
+        for (Polygon explosion : explosionQueue) {
+            subtraction.add(new Area(explosion));
+
+            //Pad before merging, so the rectangles that are merged are the ones updateWalls() re-outlines
+            Rectangle2D bounds = explosion.getBounds2D();
+            mergeBounds(dirtyBounds, new Rectangle2D.Double(
+                    bounds.getX() - DIRTY_PADDING, bounds.getY() - DIRTY_PADDING,
+                    bounds.getWidth() + 2.0 * DIRTY_PADDING, bounds.getHeight() + 2.0 * DIRTY_PADDING));
+        }
+        explosionQueue.clear();
+
+        //The render thread draws the regions (and terrain) while holding this map's lock
+        synchronized (this) {
+            //Update the regions to accommodate the new explosions
+            region.add(subtraction);
+            inverseRegion.subtract(subtraction);
+
+            //The indestructible border only needs to be restored if an explosion reached it
+            if (!innerRegion.contains(subtraction.getBounds2D())) {
+                region.subtract(borderRegion);
+                inverseRegion.add(borderRegion);
+            }
+
+            //The region only changed inside the explosions, so only the walls and occupancy there are recalculated
+            for (Rectangle2D bounds : dirtyBounds) {
+                updateWalls(bounds);
+                occupancy.carve(inverseRegion, bounds);
+                flowField.carve(bounds);
+                terrain.invalidate(bounds);
+            }
+        }
+
+        geometryVersion++;
+
+        return true;
+    }
 
-        walls = calculateWalls(areaPoints(region));
+    // Adds bounds to the list, combining it with every rectangle it touches
+    private static void mergeBounds(List<Rectangle2D> list, Rectangle2D bounds) {
+        Rectangle2D merged = new Rectangle2D.Double(
+                bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                if (list.get(i).intersects(merged)) {
+                    merged.add(list.remove(i));
+                    changed = true;
+                }
+            }
+        }
 
+        list.add(merged);
+    }
+
+    // Re-derives the walls inside dirty (already padded by DIRTY_PADDING) from the current region,
+    // leaving every other wall untouched
+    private void updateWalls(Rectangle2D dirty) {
+
+        double minX = dirty.getMinX(), minY = dirty.getMinY(), maxX = dirty.getMaxX(), maxY = dirty.getMaxY();
+
+        //Remove the old walls that cross the dirty rectangle, but keep their parts that lie outside of it
+        List<Line2D> oldWalls = new ArrayList<>();
+        wallGrid.query(dirty, oldWalls);
+        for (Line2D w : oldWalls) {
+            removeWall((WallGrid.Wall) w);
+
+            double dx = w.getX2() - w.getX1(), dy = w.getY2() - w.getY1();
+            double[] t = {0.0, 1.0};
+            if (clipLine(-dx, w.getX1() - minX, t) && clipLine(dx, maxX - w.getX1(), t) &&
+                    clipLine(-dy, w.getY1() - minY, t) && clipLine(dy, maxY - w.getY1(), t)) {
+                if (t[0] > 1e-9) {
+                    addWall(new WallGrid.Wall(w.getX1(), w.getY1(), w.getX1() + t[0] * dx, w.getY1() + t[0] * dy));
+                }
+                if (t[1] < 1.0 - 1e-9) {
+                    addWall(new WallGrid.Wall(w.getX1() + t[1] * dx, w.getY1() + t[1] * dy, w.getX2(), w.getY2()));
+                }
+            } else {
+                //Only touches the dirty rectangle, so it stays as it is
+                addWall((WallGrid.Wall) w);
+            }
+        }
+
+        //Outline the part of the region inside the dirty rectangle
+        Area local = new Area(dirty);
+        local.intersect(region);
+
+        //Add its edges, except the ones along the dirty rectangle (those aren't real walls)
+        final double e = BORDER_TOLERANCE;
+        for (Line2D w : calculateWalls(areaPoints(local))) {
+            double x1 = w.getX1(), y1 = w.getY1(), x2 = w.getX2(), y2 = w.getY2();
+            boolean onBorder =
+                    (Math.abs(x1 - minX) < e && Math.abs(x2 - minX) < e) ||
+                    (Math.abs(x1 - maxX) < e && Math.abs(x2 - maxX) < e) ||
+                    (Math.abs(y1 - minY) < e && Math.abs(y2 - minY) < e) ||
+                    (Math.abs(y1 - maxY) < e && Math.abs(y2 - maxY) < e);
+            if (!onBorder) {
+                addWall((WallGrid.Wall) w);
+            }
+        }
+    }
+
+    // One edge test of the Liang-Barsky line clipping algorithm, t holds the {entering, leaving} fractions
+    private static boolean clipLine(double p, double q, double[] t) {
+        if (p == 0.0) return q >= 0.0;
+        double r = q / p;
+        if (p < 0.0) {
+            if (r > t[1]) return false;
+            if (r > t[0]) t[0] = r;
+        } else {
+            if (r < t[0]) return false;
+            if (r < t[1]) t[1] = r;
+        }
+        return true;
+    }
+
+    private void addWall(WallGrid.Wall w) {
+        w.index = walls.size();
+        walls.add(w);
+        wallGrid.add(w);
+    }
+
+    private void removeWall(WallGrid.Wall w) {
+        wallGrid.remove(w);
+
+        //Swap the last wall into the removed wall's slot
+        WallGrid.Wall last = (WallGrid.Wall) walls.remove(walls.size() - 1);
+        if (last != w) {
+            last.index = w.index;
+            walls.set(w.index, last);
+        }
+    }
+
+    // Adds the walls that intersect rect to output
+    public void wallsInside(Rectangle2D rect, List<Line2D> output) {
+        wallGrid.query(rect, output);
+    }
+
+    // Adds the walls that intersect the line (x1, y1) -> (x2, y2) to output
+    public void wallsIntersecting(double x1, double y1, double x2, double y2, List<Line2D> output) {
+        wallGrid.query(x1, y1, x2, y2, output);
+    }
+
+    // Returns true if the box overlaps a wall (or leaves the map)
+    public boolean isBlocked(double x, double y, double w, double h) {
+        return occupancy.isBlocked(x, y, w, h);
+    }
+
+    // Finds where the line (x1, y1) -> (x2, y2) first hits a wall and stores it in hit.
+    // Returns false if the line doesn't hit a wall
+    public boolean raycast(double x1, double y1, double x2, double y2, Point hit) {
+        double t = wallGrid.raycast(x1, y1, x2, y2);
+        if (t < 0.0) return false;
+
+        hit.x = x1 + t * (x2 - x1);
+        hit.y = y1 + t * (y2 - y1);
+        return true;
+    }
+
+    // Returns true if the line (x1, y1) -> (x2, y2) crosses any wall
+    public boolean intersectsWall(double x1, double y1, double x2, double y2) {
+        return wallGrid.intersects(x1, y1, x2, y2);
     }
 
     public int getId() {
@@ -470,9 +670,13 @@ public class Map implements Hittable {
     }
 
     public boolean handleDirectHit(Projectile p) {
-        //TEMP until I figure how to test intersection of Area and Line
-        if (inverseRegion.contains(p.collideLine.getX1(), p.collideLine.getY1()) ||
-                inverseRegion.contains(p.collideLine.getX2(), p.collideLine.getY2())) {
+        //Sweep the projectile's path this tick (from its last position to its current one) against the walls
+        Line2D path = p.collideLine;
+        if (raycast(path.getX2(), path.getY2(), path.getX1(), path.getY1(), impact)) {
+
+            //Move the projectile back to where it actually hit the wall
+            p.x = impact.x;
+            p.y = impact.y;
 
             gsm.audioManager.playSFX(hitSound);
 //            gsm.audioManager.playSFX("ric2.wav");
@@ -593,15 +797,28 @@ public class Map implements Hittable {
         return null;
     }
 
-    public void draw(Graphics2D g) {
-
-        g.setStroke(STROKE);
-        g.setColor(STROKE_COLOR);
-        g.draw(inverseRegion);
-
-        g.setColor(fillColor);
-        g.fill(inverseRegion);
+    // Draws the part of the background the camera can see. The background is stretched over the whole map,
+    // so this works in the background's own pixels to draw them exactly where drawing all of it would
+    public void drawBackground(Graphics2D g, Camera camera) {
+        double scaleX = width / (double) background.getWidth(), scaleY = height / (double) background.getHeight();
+
+        int x1 = Math.max(0, (int) Math.floor(camera.getViewX() / scaleX)),
+                y1 = Math.max(0, (int) Math.floor(camera.getViewY() / scaleY)),
+                x2 = Math.min(background.getWidth(), (int) Math.ceil((camera.getViewX() + camera.getViewWidth()) / scaleX)),
+                y2 = Math.min(background.getHeight(), (int) Math.ceil((camera.getViewY() + camera.getViewHeight()) / scaleY));
+        if (x1 >= x2 || y1 >= y2) return;
+
+        AffineTransform oldT = g.getTransform();
+        g.scale(scaleX, scaleY);
+        g.drawImage(background, x1, y1, x2, y2, x1, y1, x2, y2, null);
+        g.setTransform(oldT);
+    }
 
+    // Called from the render thread, so waits for any explosions being carved out
+    public void draw(Graphics2D g, Camera camera) {
+        synchronized (this) {
+            terrain.draw(g, camera);
+        }
     }
 
 }
@@ -2,9 +2,9 @@ package UI;
 
 import GameState.GameStateManager;
 import Main.Window;
+import Util.AtlasRegion;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 
 /**
  * Directory: WarmVector_Client_Singleplayer/${PACKAGE_NAME}/
@@ -16,18 +16,21 @@ public class MouseCursor {
     public int x, y;
 
     private int w, h, oldX, oldY;
-    private BufferedImage sprite, cursor, crosshair;
+    private AtlasRegion sprite, cursor, crosshair;
     private Robot robot;
 
+    // Cursor with no sprite and no real mouse to move, for running without a screen
+    public MouseCursor() {}
+
     public MouseCursor(GameStateManager gsm) {
 
-        cursor = (BufferedImage)gsm.assetManager.getAsset("cursor.png");
-        crosshair = (BufferedImage)gsm.assetManager.getAsset("crosshair.png");
+        cursor = gsm.assetManager.getRegion("cursor.png");
+        crosshair = gsm.assetManager.getRegion("crosshair.png");
 
         sprite = cursor;
 
-        w = sprite.getWidth();
-        h = sprite.getHeight();
+        w = sprite.width;
+        h = sprite.height;
 
         try {
             robot = new Robot();
@@ -39,6 +42,8 @@ public class MouseCursor {
     }
 
     public void setSprite(int type) {
+        if (cursor == null) return;
+
         switch (type) {
             case CURSOR:
                 sprite = cursor;
@@ -47,12 +52,14 @@ public class MouseCursor {
                 sprite = crosshair;
                 break;
         }
-        w = sprite.getWidth();
-        h = sprite.getHeight();
+        w = sprite.width;
+        h = sprite.height;
     }
 
     public void draw(Graphics2D g) {
-        g.drawImage(sprite, x - (int)(w * 0.5), y - (int)(h * 0.5), null);
+        if (sprite == null) return;
+
+        sprite.draw(g, x - (int)(w * 0.5), y - (int)(h * 0.5));
     }
 
     public void setPosition(int new_x, int new_y) {
@@ -61,7 +68,7 @@ public class MouseCursor {
     }
 
     public void setMouse(int x, int y) {
-        robot.mouseMove(x, y);
+        if (robot != null) robot.mouseMove(x, y);
         setPosition(x, y);
     }
 
@@ -75,7 +82,7 @@ public class MouseCursor {
     }
 
     public void loadOldPos() {
-        robot.mouseMove(oldX, oldY);
+        if (robot != null) robot.mouseMove(oldX, oldY);
         x = oldX;
         y = oldY;
     }
@@ -0,0 +1,147 @@
+package UI;
+
+import Util.Rect;
+
+import java.util.List;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * Graph of the map's rooms and corridors, with the next step from any cell to any other.
+ */
+public class NavGraph {
+
+    // Every room and corridor (Map.cells) is a node, and two cells are connected if their
+    // rectangles share part of an edge (a corridor always touches the two rooms it joins).
+    // Each connection has a portal: the middle of the shared edge, pushed a little into the
+    // cell on the other side so that walking to it actually crosses over.
+    // A breadth first search from every cell fills a table of the first cell to move into
+    // on the shortest path to every other cell, so finding a path at runtime is a lookup.
+    // The graph is built once and never modified, so it is safe to read from several threads.
+
+    // How far past the shared edge a portal is placed
+    private static final double PORTAL_DEPTH = 24.0;
+
+    private final Rect[] cells;
+    private final int count;
+
+    // nextCell[from * count + to] is the neighbour of from on the way to to (or -1 if unreachable)
+    private final int[] nextCell;
+
+    // Portal from cell a into neighbouring cell b is at (portalX, portalY)[a * count + b]
+    private final double[] portalX, portalY;
+
+    public NavGraph(List<Rect> _cells) {
+        count = _cells.size();
+        cells = _cells.toArray(new Rect[count]);
+
+        portalX = new double[count * count];
+        portalY = new double[count * count];
+        boolean[] connected = new boolean[count * count];
+
+        for (int a = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++) {
+                if (connect(a, b)) {
+                    connected[a * count + b] = connected[b * count + a] = true;
+                }
+            }
+        }
+
+        nextCell = new int[count * count];
+        int[] queue = new int[count];
+        for (int from = 0; from < count; from++) {
+            search(from, connected, queue);
+        }
+    }
+
+    // Adds the portals between a and b if they share part of an edge, returns false if they don't
+    private boolean connect(int a, int b) {
+        Rect ra = cells[a], rb = cells[b];
+
+        int overlapX = Math.min(ra.x + ra.w, rb.x + rb.w) - Math.max(ra.x, rb.x),
+                overlapY = Math.min(ra.y + ra.h, rb.y + rb.h) - Math.max(ra.y, rb.y);
+
+        if (overlapX == 0 && overlapY > 0) {
+            // Side by side, sharing a vertical edge
+            double edgeX = ra.x + ra.w == rb.x ? rb.x : ra.x,
+                    midY = Math.max(ra.y, rb.y) + overlapY * 0.5;
+            setPortal(a, b, edgeX + Math.signum(rb.x - ra.x) * Math.min(PORTAL_DEPTH, rb.w * 0.5), midY);
+            setPortal(b, a, edgeX + Math.signum(ra.x - rb.x) * Math.min(PORTAL_DEPTH, ra.w * 0.5), midY);
+            return true;
+        }
+
+        if (overlapY == 0 && overlapX > 0) {
+            // Above one another, sharing a horizontal edge
+            double edgeY = ra.y + ra.h == rb.y ? rb.y : ra.y,
+                    midX = Math.max(ra.x, rb.x) + overlapX * 0.5;
+            setPortal(a, b, midX, edgeY + Math.signum(rb.y - ra.y) * Math.min(PORTAL_DEPTH, rb.h * 0.5));
+            setPortal(b, a, midX, edgeY + Math.signum(ra.y - rb.y) * Math.min(PORTAL_DEPTH, ra.h * 0.5));
+            return true;
+        }
+
+        return false;
+    }
+
+    private void setPortal(int from, int to, double x, double y) {
+        portalX[from * count + to] = x;
+        portalY[from * count + to] = y;
+    }
+
+    // Fills nextCell for every path starting at from
+    private void search(int from, boolean[] connected, int[] queue) {
+        int row = from * count;
+        for (int i = 0; i < count; i++) {
+            nextCell[row + i] = -1;
+        }
+        nextCell[row + from] = from;
+
+        int head = 0, tail = 0;
+
+        // The first step towards each neighbour is the neighbour itself,
+        // and every cell found after that inherits the first step of the cell it was found from
+        for (int n = 0; n < count; n++) {
+            if (connected[row + n]) {
+                nextCell[row + n] = n;
+                queue[tail++] = n;
+            }
+        }
+
+        while (head < tail) {
+            int c = queue[head++];
+            for (int n = 0; n < count; n++) {
+                if (connected[c * count + n] && nextCell[row + n] == -1) {
+                    nextCell[row + n] = nextCell[row + c];
+                    queue[tail++] = n;
+                }
+            }
+        }
+    }
+
+    // Returns the index of the cell containing (x, y), or -1 if it isn't in any
+    public int cellAt(double x, double y) {
+        for (int i = 0; i < count; i++) {
+            Rect r = cells[i];
+            if (x >= r.x && x < r.x + r.w && y >= r.y && y < r.y + r.h) return i;
+        }
+        return -1;
+    }
+
+    // Returns the cell to move into next on the way from one cell to another,
+    // to itself if they are the same cell, or -1 if there is no path
+    public int nextCell(int from, int to) {
+        return nextCell[from * count + to];
+    }
+
+    // Position of the portal from cell from into its neighbour to
+    public double getPortalX(int from, int to) {
+        return portalX[from * count + to];
+    }
+
+    public double getPortalY(int from, int to) {
+        return portalY[from * count + to];
+    }
+
+    public int size() {
+        return count;
+    }
+
+}
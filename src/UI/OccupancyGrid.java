@@ -0,0 +1,122 @@
+package UI;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * Raster of the map's solid area, stored as one bit per cell.
+ */
+public class OccupancyGrid {
+
+    // This class lets movement test a box against the walls without touching the Area of the map.
+    // The solid shape is rasterized once, then after an explosion only the cells around it are
+    // rasterized again from the new shape.
+    // A cell is set if any part of it is solid (edges are drawn with a thick stroke so cells
+    // that are only partly covered count too). Everything outside of the grid is solid.
+
+    // Size of one (square) cell in world units
+    public static final double CELL_SIZE = 2.0;
+
+    // Wide enough to cover every cell an edge passes through
+    private static final Stroke EDGE_STROKE = new BasicStroke((float) (CELL_SIZE * 1.5));
+
+    private final int cols, rows, wordsPerRow;
+    private final long[] bits;
+
+    public OccupancyGrid(Shape solid, double width, double height) {
+        cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        wordsPerRow = (cols + 63) >>> 6;
+        bits = new long[wordsPerRow * rows];
+
+        rasterize(solid, 0, 0, cols, rows);
+    }
+
+    // Rasterizes the cells around bounds again from solid, the whole solid shape after part of it was carved out.
+    // The thick edges that were removed reached past bounds, so the cells they covered are redone too
+    public void carve(Shape solid, Rectangle2D bounds) {
+        double reach = CELL_SIZE * 0.75;
+        int c0 = Math.max(0, (int) Math.floor((bounds.getMinX() - reach) / CELL_SIZE)),
+                r0 = Math.max(0, (int) Math.floor((bounds.getMinY() - reach) / CELL_SIZE)),
+                c1 = Math.min(cols - 1, (int) Math.floor((bounds.getMaxX() + reach) / CELL_SIZE)),
+                r1 = Math.min(rows - 1, (int) Math.floor((bounds.getMaxY() + reach) / CELL_SIZE));
+
+        if (c0 > c1 || r0 > r1) return;
+
+        rasterize(solid, c0, r0, c1 - c0 + 1, r1 - r0 + 1);
+    }
+
+    private void rasterize(Shape solid, int col, int row, int w, int h) {
+
+        // Fill the solid shape and thicken its edges so partly covered cells are set too
+        BufferedImage image = render(solid, col, row, w, h);
+
+        Raster raster = image.getRaster();
+        for (int r = 0; r < h; r++) {
+            for (int c = 0; c < w; c++) {
+                int index = (row + r) * wordsPerRow + ((col + c) >>> 6);
+                long bit = 1L << ((col + c) & 63);
+                if (raster.getSample(c, r, 0) != 0) {
+                    bits[index] |= bit;
+                } else {
+                    bits[index] &= ~bit;
+                }
+            }
+        }
+    }
+
+    // Renders shape into a one bit image of the given cells, with its edges drawn thick
+    private BufferedImage render(Shape shape, int col, int row, int w, int h) {
+
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g.scale(1.0 / CELL_SIZE, 1.0 / CELL_SIZE);
+        g.translate(-col * CELL_SIZE, -row * CELL_SIZE);
+
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.setStroke(EDGE_STROKE);
+        g.draw(shape);
+        g.dispose();
+
+        return image;
+    }
+
+    // Returns true if any part of the box is solid
+    public boolean isBlocked(double x, double y, double w, double h) {
+
+        int c0 = (int) Math.floor(x / CELL_SIZE),
+                r0 = (int) Math.floor(y / CELL_SIZE),
+                c1 = (int) Math.ceil((x + w) / CELL_SIZE) - 1,
+                r1 = (int) Math.ceil((y + h) / CELL_SIZE) - 1;
+
+        if (c0 < 0 || r0 < 0 || c1 >= cols || r1 >= rows) return true;
+        if (c1 < c0) c1 = c0;
+        if (r1 < r0) r1 = r0;
+
+        int w0 = c0 >>> 6, w1 = c1 >>> 6;
+        long firstMask = -1L << (c0 & 63),
+                lastMask = -1L >>> (63 - (c1 & 63));
+
+        for (int r = r0; r <= r1; r++) {
+            int base = r * wordsPerRow;
+            if (w0 == w1) {
+                if ((bits[base + w0] & firstMask & lastMask) != 0L) return true;
+            } else {
+                if ((bits[base + w0] & firstMask) != 0L) return true;
+                for (int i = w0 + 1; i < w1; i++) {
+                    if (bits[base + i] != 0L) return true;
+                }
+                if ((bits[base + w1] & lastMask) != 0L) return true;
+            }
+        }
+
+        return false;
+    }
+
+}
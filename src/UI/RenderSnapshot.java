@@ -0,0 +1,185 @@
+package UI;
+
+import Main.AssetManager;
+import Util.AtlasRegion;
+import Util.MyMath;
+import Util.RotationCache;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * Everything PlayState draws for one tick, copied out so the render thread can draw it while the next tick runs.
+ */
+public class RenderSnapshot {
+
+    // The update thread fills a snapshot in at the end of every tick and hands it to the render
+    // thread through a SnapshotBuffer, after which it isn't touched again until the render thread
+    // has moved on to a newer one. Nothing in here points at anything the update changes, except
+    // for the map, which is drawn under its own lock, and shadow, whose mask only the render thread uses.
+    // Each image also holds where it was in the snapshot before, so the render thread can draw it
+    // part of the way between the two depending on how far it is into the next tick.
+    // Like ProjectileStore, the images are kept in parallel arrays that only grow when needed,
+    // so filling a snapshot in doesn't allocate once they are big enough.
+    // Images that are loaded assets are drawn from their copy in the AssetManager's atlas when
+    // they aren't rotated. Rotated ones go through RotationCache, which has its own sheets.
+
+    // Counts up by one with every snapshot published, and System.nanoTime() when this one was
+    public long tick, time;
+
+    // What to draw the walls, background and shadow from
+    public Map map;
+    public Shadow shadow;
+    public Polygon visible;
+    public HUD hud;
+
+    // Camera position now and in the snapshot before
+    public double displayX, displayY, lastDisplayX, lastDisplayY;
+
+    // What the HUD shows, filled in by HUD.snapshot()
+    public boolean alive;
+    public String weaponName;
+    public int ammo, reserveAmmo, enemyCount, shownEnemies;
+    public double life, maxLife, playerX, playerY;
+    public final double[] enemyX = new double[HUD.MINIMAP_ENEMIES], enemyY = new double[HUD.MINIMAP_ENEMIES];
+
+    private final AssetManager assets;
+
+    // Image i is drawn with its middle at (x[i], y[i]) rotated by orient[i], at w[i] by h[i],
+    // and region[i] is where it is in the atlas (or null if it isn't in it)
+    private int count;
+    private BufferedImage[] image;
+    private AtlasRegion[] region;
+    private double[] x, y, orient, lastX, lastY, lastOrient, radius;
+    private int[] w, h;
+
+    public RenderSnapshot(AssetManager _assets) {
+        assets = _assets;
+        allocate(256);
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            image[i] = null;
+            region[i] = null;
+        }
+        count = 0;
+    }
+
+    // Adds an image that was at (_lastX, _lastY, _lastOrient) in the snapshot before,
+    // radius is how far from its middle it can reach at any rotation
+    public void add(BufferedImage _image, double _x, double _y, double _orient,
+                    double _lastX, double _lastY, double _lastOrient, int _w, int _h, double _radius) {
+        if (count == x.length) allocate(x.length * 2);
+
+        int i = count++;
+        image[i] = _image;
+        region[i] = assets.getRegion(_image);
+        x[i] = _x;
+        y[i] = _y;
+        orient[i] = _orient;
+        lastX[i] = _lastX;
+        lastY[i] = _lastY;
+        lastOrient[i] = _lastOrient;
+        w[i] = _w;
+        h[i] = _h;
+        radius[i] = _radius;
+    }
+
+    // Adds an image that is in the same place as in the snapshot before
+    public void add(BufferedImage _image, double _x, double _y, double _orient, int _w, int _h, double _radius) {
+        add(_image, _x, _y, _orient, _x, _y, _orient, _w, _h, _radius);
+    }
+
+    // How far between the snapshot before (0) and this one (1) to draw, given how long ago this one was published
+    public double alpha(double tickNanos) {
+        return Math.min(1.0, Math.max(0.0, (System.nanoTime() - time) / tickNanos));
+    }
+
+    public double displayX(double alpha) {
+        return lastDisplayX + (displayX - lastDisplayX) * alpha;
+    }
+
+    public double displayY(double alpha) {
+        return lastDisplayY + (displayY - lastDisplayY) * alpha;
+    }
+
+    // Draws the images the camera can see, alpha of the way from where they were to where they are now
+    public void draw(Graphics2D g, Camera camera, double alpha) {
+        for (int i = 0; i < count; i++) {
+            double dx = lastX[i] + (x[i] - lastX[i]) * alpha,
+                    dy = lastY[i] + (y[i] - lastY[i]) * alpha,
+                    angle = lerpAngle(lastOrient[i], orient[i], alpha);
+
+            if (!camera.shouldDraw(dx, dy, radius[i])) continue;
+
+            BufferedImage s = image[i];
+            if (angle != 0.0 && w[i] == s.getWidth() && h[i] == s.getHeight()) {
+                RotationCache.draw(g, s, dx, dy, angle);
+            } else if (angle != 0.0) {
+                AffineTransform oldTForm = g.getTransform();
+                g.translate(dx, dy);
+                g.rotate(angle);
+                g.drawImage(s, -(int) (w[i] * 0.5), -(int) (h[i] * 0.5), w[i], h[i], null);
+                g.setTransform(oldTForm);
+            } else {
+                int left = (int) (dx - w[i] * 0.5), top = (int) (dy - h[i] * 0.5);
+                if (region[i] != null) {
+                    region[i].draw(g, left, top, w[i], h[i]);
+                } else {
+                    g.drawImage(s, left, top, w[i], h[i], null);
+                }
+            }
+        }
+    }
+
+    // Turns the short way round from a to b
+    private static double lerpAngle(double a, double b, double alpha) {
+        if (a == b) return b;
+        double d = (b - a) % MyMath.TWO_PI;
+        if (d > Math.PI) d -= MyMath.TWO_PI;
+        else if (d < -Math.PI) d += MyMath.TWO_PI;
+        return a + d * alpha;
+    }
+
+    private void allocate(int capacity) {
+        image = grow(image, capacity);
+        region = grow(region, capacity);
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        orient = grow(orient, capacity);
+        lastX = grow(lastX, capacity);
+        lastY = grow(lastY, capacity);
+        lastOrient = grow(lastOrient, capacity);
+        radius = grow(radius, capacity);
+        w = grow(w, capacity);
+        h = grow(h, capacity);
+    }
+
+    private double[] grow(double[] array, int capacity) {
+        double[] newArray = new double[capacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, count);
+        return newArray;
+    }
+
+    private int[] grow(int[] array, int capacity) {
+        int[] newArray = new int[capacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, count);
+        return newArray;
+    }
+
+    private BufferedImage[] grow(BufferedImage[] array, int capacity) {
+        BufferedImage[] newArray = new BufferedImage[capacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, count);
+        return newArray;
+    }
+
+    private AtlasRegion[] grow(AtlasRegion[] array, int capacity) {
+        AtlasRegion[] newArray = new AtlasRegion[capacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, count);
+        return newArray;
+    }
+
+}
@@ -1,15 +1,16 @@
 package UI;
 
+import GameState.PlayState;
 import Main.Window;
+import Util.ImageUtils;
 import Util.MyMath;
-import Util.Point;
 
 import java.awt.*;
-import java.awt.geom.Area;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -18,25 +19,77 @@ import java.util.List;
  */
 public class Shadow {
 
+    // Everything here is stored in arrays of primitives that only grow when needed,
+    // so updating the shadow doesn't allocate once the arrays are big enough, except for the
+    // Polygon made for the renderer each time a polygon is computed (rather than found in the cache).
+    // update() runs on the update thread and draw() on the render thread, which only shares
+    // the polygons with it. Those are never changed once made, and the mask is only used by draw().
+    // Segment s has endpoints 2 * s (its first point) and 2 * s + 1 (its second point)
+
+    // How far the ends of a segment are moved inwards when comparing segments
+    private static final double F = 0.01;
+
     // Color of shadow
     private static final Color shadowFill = new Color(20, 20, 20);
+    private static final Color clearFill = new Color(0, 0, 0, 0);
+
+    // The shadow is drawn into a mask image covering the screen plus this many units on each side,
+    // so it only has to be redrawn when the polygon changes or the screen moves past the edge
+    private static final double MASK_MARGIN = 128.0;
+
+    // The light position is snapped to a grid of this size, so polygons can be cached
+    public static final double QUANTUM = 2.0;
+    private static final int CACHE_SIZE = 32;
 
     // Draw region
     private static final double DRAW_DIST = Window.WIDTH * 1.5;
     private Rectangle2D drawRegion;
+    private List<Line2D> nearbyWalls;
 
     // These represent the map and the light location:
-    private List<Segment> segments;
-    private List<EndPoint> endpoints;
-    private Point center;
+    private int segmentCount;
+    private double[] segX1, segY1, segX2, segY2;
+    private int[] segHeapIndex; // Position in the open heap, or -1 if it isn't open
+    private double[] pointAngle;
+    private boolean[] pointBegin;
+    private double centerX, centerY;
     private boolean updateSegments, updateOrigin;
 
-    // 'open' line segments, sorted so that the nearest
-    // segment is first. It's used only during the sweep algorithm
-    private List<Segment> open;
+    // Endpoints sorted by angle, sortBuffer is scratch space for the merge sort
+    private int[] sorted, sortBuffer;
 
-    // The output is a series of points that forms a visible area polygon
-    public List<Point> output;
+    // 'open' line segments, kept as a binary heap so that the nearest
+    // segment is first. It's used only during the sweep algorithm
+    private int[] open;
+    private int openSize;
+
+    // The output is a series of points that forms a visible area polygon.
+    // Points 2k and 2k + 1 are the far corners of triangle k (the third corner is the light),
+    // outputAngle is the angle of each point from the light
+    public double[] outputX, outputY, outputAngle;
+    public int outputSize;
+
+    // Light position (in QUANTUM steps) and map version that the output was computed for
+    private int outputQX, outputQY, outputVersion;
+
+    // Recently computed polygons, keyed by quantized light position and map version.
+    // When full, the least recently used entry is replaced
+    private int[] cacheQX, cacheQY, cacheVersion, cacheSize;
+    private double[][] cacheX, cacheY, cacheAngle;
+    private Polygon[] cachePolygon;
+    private long[] cacheLastUse;
+    private long useClock;
+    private int cacheHits, cacheMisses;
+
+    // The output, rounded to whole units
+    private Polygon visible;
+
+    // Shadow mask, in screen pixels, with its top left corner at (maskX, maskY) in the world,
+    // and the polygon that was cut out of it
+    private BufferedImage mask;
+    private double maskX, maskY;
+    private Polygon maskPolygon;
+    private AffineTransform maskTransform;
 
     private Map map;
 
@@ -45,122 +98,283 @@ public class Shadow {
 
         map = _map;
 
-        output = new ArrayList<>();
-        center = new Point(0, 0);
+        allocateSegments(64);
+        outputX = new double[128];
+        outputY = new double[128];
+        outputAngle = new double[128];
 
         drawRegion = new Rectangle2D.Double();
+        nearbyWalls = new ArrayList<>();
+
+        cacheQX = new int[CACHE_SIZE];
+        cacheQY = new int[CACHE_SIZE];
+        cacheVersion = new int[CACHE_SIZE];
+        cacheSize = new int[CACHE_SIZE];
+        cacheX = new double[CACHE_SIZE][];
+        cacheY = new double[CACHE_SIZE][];
+        cacheAngle = new double[CACHE_SIZE][];
+        cachePolygon = new Polygon[CACHE_SIZE];
+        cacheLastUse = new long[CACHE_SIZE];
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cacheVersion[i] = -1; // Empty
+        }
+        outputVersion = -1;
 
         updateSegments = updateOrigin = true;
         update(_x, _y);
     }
 
     public void update(double x, double y) {
-        if (updateOrigin) {
-            drawRegion.setRect(x - DRAW_DIST * 0.5, y - DRAW_DIST * 0.5, DRAW_DIST, DRAW_DIST);
-        }
-
-//        if (updateSegments) {
-//        }
 
         if (updateSegments || updateOrigin) {
-            updateSegments();
-            setLightLocation(x, y);
-            sweep(0.0, MyMath.TWO_PI);
+
+            // Compute the polygon from the nearest grid point instead of the exact position
+            int qx = (int) Math.floor(x / QUANTUM + 0.5),
+                    qy = (int) Math.floor(y / QUANTUM + 0.5),
+                    version = map.geometryVersion;
+
+            if (qx != outputQX || qy != outputQY || version != outputVersion) {
+                if (!loadCached(qx, qy, version)) {
+                    cacheMisses++;
+
+                    double lightX = qx * QUANTUM, lightY = qy * QUANTUM;
+                    drawRegion.setRect(lightX - DRAW_DIST * 0.5, lightY - DRAW_DIST * 0.5, DRAW_DIST, DRAW_DIST);
+
+                    updateSegments();
+                    setLightLocation(lightX, lightY);
+                    sweep(0.0, MyMath.TWO_PI);
+
+                    storeCached(qx, qy, version);
+                } else {
+                    cacheHits++;
+                    centerX = qx * QUANTUM;
+                    centerY = qy * QUANTUM;
+                }
+
+                outputQX = qx;
+                outputQY = qy;
+                outputVersion = version;
+            }
         }
 
         updateSegments = updateOrigin = false;
     }
 
+    // Copies the cached polygon for this key into the output, returns false if it isn't cached
+    private boolean loadCached(int qx, int qy, int version) {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (cacheVersion[i] == version && cacheQX[i] == qx && cacheQY[i] == qy) {
+                int size = cacheSize[i];
+                if (outputX.length < size) {
+                    outputX = new double[cacheX[i].length];
+                    outputY = new double[cacheY[i].length];
+                    outputAngle = new double[cacheAngle[i].length];
+                }
+                System.arraycopy(cacheX[i], 0, outputX, 0, size);
+                System.arraycopy(cacheY[i], 0, outputY, 0, size);
+                System.arraycopy(cacheAngle[i], 0, outputAngle, 0, size);
+                outputSize = size;
+                visible = cachePolygon[i];
+
+                cacheLastUse[i] = ++useClock;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Copies the output into the cache, replacing an empty or the least recently used entry
+    private void storeCached(int qx, int qy, int version) {
+        int victim = 0;
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            // Entries from an old map version can never be used again
+            if (cacheVersion[i] != version) {
+                victim = i;
+                break;
+            }
+            if (cacheLastUse[i] < cacheLastUse[victim]) victim = i;
+        }
+
+        if (cacheX[victim] == null || cacheX[victim].length < outputSize) {
+            cacheX[victim] = new double[outputX.length];
+            cacheY[victim] = new double[outputY.length];
+            cacheAngle[victim] = new double[outputAngle.length];
+        }
+        System.arraycopy(outputX, 0, cacheX[victim], 0, outputSize);
+        System.arraycopy(outputY, 0, cacheY[victim], 0, outputSize);
+        System.arraycopy(outputAngle, 0, cacheAngle[victim], 0, outputSize);
+        cacheSize[victim] = outputSize;
+
+        // A new polygon rather than reusing the old one, which could still be being drawn
+        visible = new Polygon();
+        for (int i = 0; i < outputSize; i++) {
+            visible.addPoint(MyMath.round(outputX[i]), MyMath.round(outputY[i]));
+        }
+        cachePolygon[victim] = visible;
+        cacheQX[victim] = qx;
+        cacheQY[victim] = qy;
+        cacheVersion[victim] = version;
+        cacheLastUse[victim] = ++useClock;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
     private void updateSegments() {
-        open = new ArrayList<>();
-        segments = new ArrayList<>();
-        endpoints = new ArrayList<>();
+        segmentCount = 0;
+
+        nearbyWalls.clear();
+        map.wallsInside(drawRegion, nearbyWalls);
 
-        for (Line2D w : map.walls) {
-            if (drawRegion.contains(w.getP1()) || drawRegion.contains(w.getP2()))
+        for (int i = 0; i < nearbyWalls.size(); i++) {
+            Line2D w = nearbyWalls.get(i);
+            if (drawRegion.contains(w.getX1(), w.getY1()) || drawRegion.contains(w.getX2(), w.getY2()))
                 addSegment(w.getX1() , w.getY1(), w.getX2(), w.getY2());
         }
     }
 
-    public void draw(Graphics2D g) {
+    // The visible area as of the last update(), to pass to draw()
+    public Polygon getVisible() {
+        return visible;
+    }
+
+    // Draws the shadow around polygon (from getVisible()), on the render thread
+    public void draw(Graphics2D g, Camera camera, Polygon polygon) {
+
+        double viewX = camera.getViewX(), viewY = camera.getViewY(),
+                viewW = camera.getViewWidth(), viewH = camera.getViewHeight();
 
-        int[] x_points = new int[output.size()];
-        int[] y_points = new int[x_points.length];
+        if (mask == null || polygon != maskPolygon || viewX < maskX || viewY < maskY ||
+                viewX + viewW > maskX + mask.getWidth() / PlayState.SCALEFACTOR ||
+                viewY + viewH > maskY + mask.getHeight() / PlayState.SCALEFACTOR) {
+            updateMask(polygon, viewX, viewY, viewW, viewH);
+        }
+
+        // g is already scaled up, so scale the mask back down to draw it one pixel per pixel
+        maskTransform.setTransform(1.0 / PlayState.SCALEFACTOR, 0.0, 0.0, 1.0 / PlayState.SCALEFACTOR, maskX, maskY);
+        g.drawImage(mask, maskTransform, null);
+    }
+
+    // Redraws the mask around the given view: shadow over the inner region, minus the visible polygon
+    private void updateMask(Polygon polygon, double viewX, double viewY, double viewW, double viewH) {
 
-        for (int i = 0; i < output.size(); i++) {
-            Util.Point p = output.get(i);
-            x_points[i] = MyMath.round(p.x);
-            y_points[i] = MyMath.round(p.y);
+        if (mask == null) {
+            mask = ImageUtils.createCompatibleImage(
+                    (int) Math.ceil((viewW + MASK_MARGIN * 2.0) * PlayState.SCALEFACTOR),
+                    (int) Math.ceil((viewH + MASK_MARGIN * 2.0) * PlayState.SCALEFACTOR),
+                    Transparency.TRANSLUCENT);
+            maskTransform = new AffineTransform();
         }
 
-        Polygon cutout = new Polygon(x_points, y_points, x_points.length);
+        maskX = Math.floor(viewX - MASK_MARGIN);
+        maskY = Math.floor(viewY - MASK_MARGIN);
 
-        Area shadow = new Area(map.innerRegion);
-        shadow.subtract(new Area(cutout));
+        Graphics2D g = mask.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(clearFill);
+        g.fillRect(0, 0, mask.getWidth(), mask.getHeight());
+
+        g.scale(PlayState.SCALEFACTOR, PlayState.SCALEFACTOR);
+        g.translate(-maskX, -maskY);
 
         g.setColor(shadowFill);
-        g.fill(shadow);
+        g.fill(map.innerRegion);
+
+        g.setComposite(AlphaComposite.Clear);
+        g.fill(polygon);
+        g.dispose();
+
+        maskPolygon = polygon;
     }
 
 
     private void addSegment(double x1, double y1, double x2, double y2) {
 
-        // Add a segment, where the first point shows up in the
-        // visualization but the second one does not. (Every endpoint is
-        // part of two segments, but only show them once)
-        EndPoint p1 = new EndPoint(x1, y1);
-        p1.visualize = true;
-        EndPoint p2 = new EndPoint(x2, y2);
-        p2.visualize = false;
-        Segment segment = new Segment(p1, p2);
-        p1.segment = p2.segment = segment;
-        segments.add(segment);
-        endpoints.add(p1);
-        endpoints.add(p2);
+        // Add a segment, growing the arrays if they are full
+        if (segmentCount == segX1.length) allocateSegments(segX1.length * 2);
 
+        int s = segmentCount++;
+        segX1[s] = x1;
+        segY1[s] = y1;
+        segX2[s] = x2;
+        segY2[s] = y2;
+        segHeapIndex[s] = -1;
+
+    }
+
+    // Grows the segment arrays to capacity, keeping the current segments
+    private void allocateSegments(int capacity) {
+        segX1 = grow(segX1, capacity);
+        segY1 = grow(segY1, capacity);
+        segX2 = grow(segX2, capacity);
+        segY2 = grow(segY2, capacity);
+        pointAngle = grow(pointAngle, capacity * 2);
+
+        int[] newHeapIndex = new int[capacity];
+        boolean[] newBegin = new boolean[capacity * 2];
+        if (segHeapIndex != null) {
+            System.arraycopy(segHeapIndex, 0, newHeapIndex, 0, segmentCount);
+            System.arraycopy(pointBegin, 0, newBegin, 0, segmentCount * 2);
+        }
+        segHeapIndex = newHeapIndex;
+        pointBegin = newBegin;
+
+        sorted = new int[capacity * 2];
+        sortBuffer = new int[capacity * 2];
+        open = new int[capacity];
+    }
+
+    private double[] grow(double[] array, int capacity) {
+        double[] newArray = new double[capacity];
+        if (array != null) System.arraycopy(array, 0, newArray, 0, Math.min(array.length, capacity));
+        return newArray;
     }
 
 
     // Set the light location
     private void setLightLocation(double x, double y) {
-        center.x = x;
-        center.y = y;
-
-        for (Segment segment : segments) {
-            double dx = 0.5 * (segment.p1.x + segment.p2.x) - x;
-            double dy = 0.5 * (segment.p1.y + segment.p2.y) - y;
-            segment.d = dx * dx + dy * dy;
+        centerX = x;
+        centerY = y;
 
-            segment.p1.angle = Math.atan2(segment.p1.y - y, segment.p1.x - x);
-            segment.p2.angle = Math.atan2(segment.p2.y - y, segment.p2.x - x);
+        for (int s = 0; s < segmentCount; s++) {
+            double angle1 = Math.atan2(segY1[s] - y, segX1[s] - x);
+            double angle2 = Math.atan2(segY2[s] - y, segX2[s] - x);
+            pointAngle[2 * s] = angle1;
+            pointAngle[2 * s + 1] = angle2;
 
-            double dAngle = segment.p2.angle - segment.p1.angle;
+            double dAngle = angle2 - angle1;
             if (dAngle <= -Math.PI) {
                 dAngle += 2.0 * Math.PI;
             }
             if (dAngle > Math.PI) {
                 dAngle -= 2.0 * Math.PI;
             }
-            segment.p1.begin = (dAngle > 0.0);
-            segment.p2.begin = !segment.p1.begin;
+            pointBegin[2 * s] = (dAngle > 0.0);
+            pointBegin[2 * s + 1] = !pointBegin[2 * s];
         }
     }
 
     // returns true if point is "left" of segment treated as a vector
-    private boolean leftOf(Segment s, Point p) {
-        double cross = (s.p2.x - s.p1.x) * (p.y - s.p1.y) - (s.p2.y - s.p1.y) * (p.x - s.p1.x);
+    private boolean leftOf(int s, double px, double py) {
+        double cross = (segX2[s] - segX1[s]) * (py - segY1[s]) - (segY2[s] - segY1[s]) * (px - segX1[s]);
         return cross < 0;
     }
 
     // A neat algorithm that works for reasons outside of my knowledge (I didn't write this)
-    private boolean segmentInFrontOf(Segment a, Segment b, Point relativeTo) {
-
-        boolean A1 = leftOf(a, interpolate(b.p1, b.p2, 0.01));
-        boolean A2 = leftOf(a, interpolate(b.p2, b.p1, 0.01));
-        boolean A3 = leftOf(a, relativeTo);
-        boolean B1 = leftOf(b, interpolate(a.p1, a.p2, 0.01));
-        boolean B2 = leftOf(b, interpolate(a.p2, a.p1, 0.01));
-        boolean B3 = leftOf(b, relativeTo);
+    // The points tested are the ends of b (then a) moved a fraction F towards each other
+    private boolean segmentInFrontOf(int a, int b) {
+
+        boolean A1 = leftOf(a, segX1[b] * (1.0 - F) + segX2[b] * F, segY1[b] * (1.0 - F) + segY2[b] * F);
+        boolean A2 = leftOf(a, segX2[b] * (1.0 - F) + segX1[b] * F, segY2[b] * (1.0 - F) + segY1[b] * F);
+        boolean A3 = leftOf(a, centerX, centerY);
+        boolean B1 = leftOf(b, segX1[a] * (1.0 - F) + segX2[a] * F, segY1[a] * (1.0 - F) + segY2[a] * F);
+        boolean B2 = leftOf(b, segX2[a] * (1.0 - F) + segX1[a] * F, segY2[a] * (1.0 - F) + segY1[a] * F);
+        boolean B3 = leftOf(b, centerX, centerY);
         if (B1 == B2 && B2 != B3) return true;
         if (A1 == A2 && A2 == A3) return true;
         if (A1 == A2 && A2 != A3) return false;
@@ -169,131 +383,237 @@ public class Shadow {
         return false;
     }
 
-    // Interpolate from p to q with scale f
-    private Point interpolate(Point p, Point q, double f) {
-        return new Point(p.x * (1.0 - f) + q.x * f, p.y * (1.0 - f) + q.y * f);
-    }
-
     // Run the algorithm, sweeping over all or part of the circle to find
     // the visible area, represented as a set of triangles
     private void sweep(double beginAngle, double maxAngle) {
 
-        output = new ArrayList<>();  // output set of triangles
-        Collections.sort(endpoints, (a, b) -> {
-            // Traverse in angle order
-            if (a.angle > b.angle) return 1;
-            if (a.angle < b.angle) return -1;
-            if (!a.begin && b.begin) return 1;
-            if (a.begin && !b.begin) return -1;
-            return 0;
-        });
+        outputSize = 0;  // output set of triangles
+        sortPoints();
 
-        open.clear();
+        clearOpen();
+
+        int pointCount = segmentCount * 2;
 
         // Iterate through all the segments, figure out which
         // ones intersect the initial sweep line, and then sort them
         for (int i = 0; i < 2; i++) {
-            for (EndPoint p : endpoints) {
-                if (i == 1 && p.angle > maxAngle) {
+            for (int j = 0; j < pointCount; j++) {
+                int p = sorted[j];
+                if (i == 1 && pointAngle[p] > maxAngle) {
                     // Early exit for the visualization to show the sweep process
                     break;
                 }
 
-                Segment current_old = open.isEmpty() ? null : open.get(0);
+                int current_old = openSize == 0 ? -1 : open[0];
 
-                if (p.begin) {
-                    // Insert into the right place in the list
-                    Segment node = open.isEmpty() ? null : open.get(0);
-                    while (node != null && segmentInFrontOf(p.segment, node, center)) {
-                        node = open.size() == open.indexOf(node) + 1 ? null : open.get((open.indexOf(node) + 1));
-                    }
-                    if (node == null) {
-                        open.add(p.segment);
-                    } else {
-                        open.add(open.indexOf(node), p.segment); // (index-1) or just (index)???
-                    }
+                if (pointBegin[p]) {
+                    addOpen(p >> 1);
                 } else {
-                    open.remove(p.segment);
+                    removeOpen(p >> 1);
                 }
 
-                Segment current_new = open.isEmpty() ? null : open.get(0);
+                int current_new = openSize == 0 ? -1 : open[0];
                 if (current_old != current_new) {
                     if (i == 1) {
-                        addTriangle(beginAngle, p.angle, current_old);
+                        addTriangle(beginAngle, pointAngle[p], current_old);
                     }
-                    beginAngle = p.angle;
+                    beginAngle = pointAngle[p];
                 }
             }
         }
     }
 
+    // Sorts the endpoints in angle order, with beginnings before ends at the same angle.
+    // This is a merge sort, so endpoints that compare equal keep their order
+    private void sortPoints() {
+        int n = segmentCount * 2;
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+
+        int[] from = sorted, to = sortBuffer;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    to[k++] = pointBefore(from[j], from[i]) ? from[j++] : from[i++];
+                }
+                while (i < mid) to[k++] = from[i++];
+                while (j < hi) to[k++] = from[j++];
+            }
+            int[] temp = from;
+            from = to;
+            to = temp;
+        }
+
+        if (from != sorted) System.arraycopy(from, 0, sorted, 0, n);
+    }
 
-    private Point lineIntersection(Point p1, Point p2, Point p3, Point p4) {
-        double s = ((p4.x - p3.x) * (p1.y - p3.y) - (p4.y - p3.y) * (p1.x - p3.x))
-                / ((p4.y - p3.y) * (p2.x - p1.x) - (p4.x - p3.x) * (p2.y - p1.y));
-        return new Util.Point(p1.x + s * (p2.x - p1.x), p1.y + s * (p2.y - p1.y));
+    // Returns true if endpoint a is strictly before endpoint b in the sweep
+    private boolean pointBefore(int a, int b) {
+        // Traverse in angle order
+        if (pointAngle[a] != pointAngle[b]) return pointAngle[a] < pointAngle[b];
+        return pointBegin[a] && !pointBegin[b];
     }
 
+    // The open heap is ordered by nearer(), each segment keeps its own position in it
+    // so it can be removed without searching
 
-    private void addTriangle(double angle1, double angle2, Segment segment) {
-        Point p1 = center;
-        Point p2 = new Point(center.x + Math.cos(angle1), center.y + Math.sin(angle1));
-        Point p3 = new Point(0.0, 0.0);
-        Point p4 = new Point(0.0, 0.0);
+    // Returns true if a should come before b in the open heap (a is not behind b)
+    private boolean nearer(int a, int b) {
+        return !segmentInFrontOf(a, b);
+    }
 
-        if (segment != null) {
-            // Stop the triangle at the intersecting segment
-            p3.x = segment.p1.x;
-            p3.y = segment.p1.y;
-            p4.x = segment.p2.x;
-            p4.y = segment.p2.y;
-        } else {
-            // Stop the triangle at a fixed distance just in case
-            p3.x = center.x + Math.cos(angle1) * 500.0;
-            p3.y = center.y + Math.sin(angle1) * 500.0;
-            p4.x = center.x + Math.cos(angle2) * 500.0;
-            p4.y = center.y + Math.sin(angle2) * 500.0;
+    private void clearOpen() {
+        for (int i = 0; i < openSize; i++) {
+            segHeapIndex[open[i]] = -1;
         }
+        openSize = 0;
+    }
 
-        Point pBegin = lineIntersection(p3, p4, p1, p2);
+    private void addOpen(int s) {
+        if (segHeapIndex[s] != -1) return;
 
-        p2.x = center.x + Math.cos(angle2);
-        p2.y = center.y + Math.sin(angle2);
-        Point pEnd = lineIntersection(p3, p4, p1, p2);
+        open[openSize] = s;
+        segHeapIndex[s] = openSize;
+        openSize++;
+        siftUp(segHeapIndex[s]);
+    }
 
-        output.add(pBegin);
-        output.add(pEnd);
+    private void removeOpen(int s) {
+        // The end of a segment can come before its beginning on the first pass
+        int i = segHeapIndex[s];
+        if (i == -1) return;
+
+        segHeapIndex[s] = -1;
+        openSize--;
+        int last = open[openSize];
+
+        if (i != openSize) {
+            // Fill the gap with the last segment and move it to wherever it belongs
+            open[i] = last;
+            segHeapIndex[last] = i;
+            siftDown(siftUp(i));
+        }
     }
 
-    public void queueWorldUpdate() {
-        updateSegments = true;
+    // Moves the segment at i up while it is nearer than its parent, returns its new position
+    private int siftUp(int i) {
+        int s = open[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!nearer(s, open[parent])) break;
+            open[i] = open[parent];
+            segHeapIndex[open[i]] = i;
+            i = parent;
+        }
+        open[i] = s;
+        segHeapIndex[s] = i;
+        return i;
     }
 
-    public void queueOriginUpdate() {
-        updateOrigin = true;
+    // Moves the segment at i down while one of its children is nearer
+    private void siftDown(int i) {
+        int s = open[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= openSize) break;
+            if (child + 1 < openSize && nearer(open[child + 1], open[child])) child++;
+            if (!nearer(open[child], s)) break;
+            open[i] = open[child];
+            segHeapIndex[open[i]] = i;
+            i = child;
+        }
+        open[i] = s;
+        segHeapIndex[s] = i;
     }
 
-    private class EndPoint extends Point {
-        public boolean begin = false;
-        public Segment segment = null;
-        public double angle = 0;
-        public boolean visualize = false;
 
-        public EndPoint(double x, double y) {
-            super(x, y);
+    // Adds the points where the rays at angle1 and angle2 hit segment (or -1 for no segment)
+    private void addTriangle(double angle1, double angle2, int segment) {
+        double x3, y3, x4, y4;
+
+        if (segment != -1) {
+            // Stop the triangle at the intersecting segment
+            x3 = segX1[segment];
+            y3 = segY1[segment];
+            x4 = segX2[segment];
+            y4 = segY2[segment];
+        } else {
+            // Stop the triangle at a fixed distance just in case
+            x3 = centerX + Math.cos(angle1) * 500.0;
+            y3 = centerY + Math.sin(angle1) * 500.0;
+            x4 = centerX + Math.cos(angle2) * 500.0;
+            y4 = centerY + Math.sin(angle2) * 500.0;
         }
+
+        if (outputSize + 2 > outputX.length) {
+            outputX = grow(outputX, outputX.length * 2);
+            outputY = grow(outputY, outputY.length * 2);
+            outputAngle = grow(outputAngle, outputAngle.length * 2);
+        }
+
+        addIntersection(x3, y3, x4, y4, angle1);
+        addIntersection(x3, y3, x4, y4, angle2);
     }
 
-    private class Segment {
-        public EndPoint p1, p2;
-        public double d;
-        public boolean draw;
+    // Adds the point where the line (x1, y1) -> (x2, y2) meets the ray from the center at angle
+    private void addIntersection(double x1, double y1, double x2, double y2, double angle) {
+        double x4 = centerX + Math.cos(angle), y4 = centerY + Math.sin(angle);
+        double s = ((x4 - centerX) * (y1 - centerY) - (y4 - centerY) * (x1 - centerX))
+                / ((y4 - centerY) * (x2 - x1) - (x4 - centerX) * (y2 - y1));
+        outputX[outputSize] = x1 + s * (x2 - x1);
+        outputY[outputSize] = y1 + s * (y2 - y1);
+        outputAngle[outputSize] = angle;
+        outputSize++;
+    }
 
-        public Segment(EndPoint p1, EndPoint p2) {
-            this.p1 = p1;
-            this.p2 = p2;
+    // Returns true if (x, y) is inside the visible area polygon, which means there is
+    // no wall between it and the light. The triangles are in angle order, so the one
+    // in the direction of the point is found with a binary search
+    public boolean isVisible(double x, double y) {
+        int triangles = outputSize / 2;
+        if (triangles == 0) return false;
+
+        double angle = Math.atan2(y - centerY, x - centerX);
+
+        // The first triangle wraps around from the end of the sweep (near pi) to its start (near -pi),
+        // the rest cover the angles in between, each one ending where the next one begins
+        int k = 0;
+        if (angle > outputAngle[1] && angle <= outputAngle[2 * triangles - 1]) {
+            int lo = 1, hi = triangles - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (outputAngle[2 * mid + 1] < angle) lo = mid + 1;
+                else hi = mid;
+            }
+            k = lo;
         }
 
+        // Visible if the point is on the same side of the triangle's far edge as the light
+        double x1 = outputX[2 * k], y1 = outputY[2 * k],
+                ex = outputX[2 * k + 1] - x1, ey = outputY[2 * k + 1] - y1;
+        double pointSide = ex * (y - y1) - ey * (x - x1),
+                lightSide = ex * (centerY - y1) - ey * (centerX - x1);
+
+        return pointSide == 0.0 || (pointSide < 0.0) == (lightSide < 0.0);
+    }
+
+    public double getLightX() {
+        return centerX;
+    }
+
+    public double getLightY() {
+        return centerY;
+    }
+
+    public void queueWorldUpdate() {
+        updateSegments = true;
+    }
+
+    public void queueOriginUpdate() {
+        updateOrigin = true;
     }
 
 }
@@ -0,0 +1,49 @@
+package UI;
+
+import Main.AssetManager;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * Hands RenderSnapshots from the update thread to the render thread without either waiting on the other.
+ */
+public class SnapshotBuffer {
+
+    // Three snapshots take turns: the update thread fills in back, publish() swaps it with ready,
+    // and the render thread's acquire() swaps ready with front if it's newer than front.
+    // So the update thread never writes a snapshot that is being drawn, the render thread always
+    // gets the newest finished one, and the only locking is around swapping two references.
+
+    private RenderSnapshot back, ready, front;
+    private boolean fresh, published;
+
+    public SnapshotBuffer(AssetManager assets) {
+        back = new RenderSnapshot(assets);
+        ready = new RenderSnapshot(assets);
+        front = new RenderSnapshot(assets);
+    }
+
+    // The snapshot to fill in, for the update thread only
+    public RenderSnapshot getBack() {
+        return back;
+    }
+
+    public synchronized void publish() {
+        RenderSnapshot temp = ready;
+        ready = back;
+        back = temp;
+        fresh = published = true;
+    }
+
+    // The newest published snapshot, or null if there hasn't been one yet. For the render thread only,
+    // and the snapshot is only safe to read until the next call
+    public synchronized RenderSnapshot acquire() {
+        if (fresh) {
+            RenderSnapshot temp = front;
+            front = ready;
+            ready = temp;
+            fresh = false;
+        }
+        return published ? front : null;
+    }
+
+}
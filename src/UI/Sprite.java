@@ -1,5 +1,8 @@
 package UI;
 
+import Util.AtlasRegion;
+import Util.RotationCache;
+
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
@@ -13,6 +16,8 @@ public class Sprite {
     private double orient;
     private int x, y, w, h, cornerX, cornerY, frame, step, currentStep;
     private BufferedImage[] sprites;
+    // Where the frames are in the atlas, if they are in it (null if not)
+    private AtlasRegion[] regions;
 
     private final boolean loop;
     private final int length, frameRate;
@@ -20,6 +25,12 @@ public class Sprite {
     public boolean state;
     public int layer;
 
+    public Sprite(double _x, double _y, double _orient, int _frameRate, boolean _loop,
+                  BufferedImage[] _sprites, AtlasRegion[] _regions) {
+        this(_x, _y, _orient, _frameRate, _loop, _sprites);
+        regions = _regions;
+    }
+
     public Sprite(double _x, double _y, double _orient, int _frameRate, boolean _loop, BufferedImage[] _sprites) {
         w = _sprites[0].getWidth();
         h = _sprites[0].getHeight();
@@ -43,17 +54,39 @@ public class Sprite {
     }
 
     public void draw(Graphics2D g) {
-        if (orient != 0.0) {
+        if (orient != 0.0 && w == sprites[frame].getWidth() && h == sprites[frame].getHeight()) {
+            RotationCache.draw(g, sprites[frame], x, y, orient);
+        } else if (orient != 0.0) {
             AffineTransform oldTForm = g.getTransform();
             g.translate(x, y);
             g.rotate(orient);
             g.drawImage(sprites[frame], cornerX, cornerY, w, h, null);
             g.setTransform(oldTForm);
+        } else if (regions != null) {
+            regions[frame].draw(g, x + cornerX, y + cornerY, w, h);
         } else {
             g.drawImage(sprites[frame], x + cornerX, y + cornerY, w, h, null);
         }
     }
 
+    // Adds the current frame to the snapshot, sprites don't move so there's nothing to interpolate
+    public void snapshot(RenderSnapshot s) {
+        s.add(sprites[frame], x, y, orient, w, h, getRadius());
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    // Distance from the center to the furthest corner at any rotation
+    public double getRadius() {
+        return Math.sqrt(w * w + h * h) * 0.5;
+    }
+
     public void step() {
         currentStep++;
         if (currentStep - step > frameRate) {
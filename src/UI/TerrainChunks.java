@@ -0,0 +1,203 @@
+package UI;
+
+import Util.ImageUtils;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * The map's walls split into square chunks, so only the chunks on screen are drawn.
+ */
+public class TerrainChunks {
+
+    // Filling and outlining the walls as one Area costs the same however little of the level
+    // is on screen, so instead the walls are cut up into chunks. Each chunk is either empty
+    // (nothing to draw), solid (drawn as one rectangle) or mixed, in which case its part of the
+    // walls is drawn into an image the first time the chunk is on screen, and that image is
+    // reused until an explosion touches the chunk.
+    // Chunks are only sorted into empty, solid and mixed when they first come into view, and the
+    // images of chunks that leave the view are dropped, so both the time and memory spent depend
+    // on the size of the screen rather than the level.
+
+    // Size of one (square) chunk in world units
+    public static final int CHUNK_SIZE = 256;
+
+    private static final byte UNKNOWN = 0, EMPTY = 1, SOLID = 2, MIXED = 3;
+
+    private final Area walls;
+    private final Rectangle2D inner;
+    private final Color fillColor, strokeColor;
+    private final BasicStroke stroke;
+
+    // How far past its edges a chunk looks, so that outlines of walls just outside it are included
+    private final double margin;
+
+    private final int originX, originY, cols, rows;
+    private final byte[] kind;
+    private final Area[] shape; // Part of the walls around a mixed chunk
+    private final BufferedImage[] image;
+
+    private final int[] visible; // Mixed chunks being drawn this frame
+    private final AffineTransform identity;
+
+    // Pixels per world unit that the images were drawn at
+    private double imageScale;
+
+    // _walls is kept and read as it changes, and everything outside _inner is always solid wall
+    public TerrainChunks(Area _walls, Rectangle2D _inner, Color _fillColor, Color _strokeColor, BasicStroke _stroke) {
+        walls = _walls;
+        inner = _inner;
+        fillColor = _fillColor;
+        strokeColor = _strokeColor;
+        stroke = _stroke;
+
+        margin = stroke.getLineWidth() * 0.5 + 1.0;
+
+        Rectangle bounds = walls.getBounds();
+        originX = Math.floorDiv(bounds.x, CHUNK_SIZE) * CHUNK_SIZE;
+        originY = Math.floorDiv(bounds.y, CHUNK_SIZE) * CHUNK_SIZE;
+        cols = Math.max(1, (int) Math.ceil((bounds.x + bounds.width - originX) / (double) CHUNK_SIZE));
+        rows = Math.max(1, (int) Math.ceil((bounds.y + bounds.height - originY) / (double) CHUNK_SIZE));
+
+        kind = new byte[cols * rows];
+        shape = new Area[cols * rows];
+        image = new BufferedImage[cols * rows];
+
+        visible = new int[cols * rows];
+        identity = new AffineTransform();
+    }
+
+    // Forgets every chunk the walls might have changed in
+    public void invalidate(Rectangle2D bounds) {
+        int c0 = Math.max(0, colAt(bounds.getMinX() - margin)),
+                r0 = Math.max(0, rowAt(bounds.getMinY() - margin)),
+                c1 = Math.min(cols - 1, colAt(bounds.getMaxX() + margin)),
+                r1 = Math.min(rows - 1, rowAt(bounds.getMaxY() + margin));
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int i = r * cols + c;
+                kind[i] = UNKNOWN;
+                shape[i] = null;
+                image[i] = null;
+            }
+        }
+    }
+
+    // Draws the chunks the camera can see, g should already be transformed to world units
+    public void draw(Graphics2D g, Camera camera) {
+
+        double scale = g.getTransform().getScaleX();
+        if (scale != imageScale) {
+            imageScale = scale;
+            for (int i = 0; i < image.length; i++) {
+                image[i] = null;
+            }
+        }
+
+        int c0 = Math.max(0, colAt(camera.getViewX())),
+                r0 = Math.max(0, rowAt(camera.getViewY())),
+                c1 = Math.min(cols - 1, colAt(camera.getViewX() + camera.getViewWidth())),
+                r1 = Math.min(rows - 1, rowAt(camera.getViewY() + camera.getViewHeight()));
+
+        // Drop the images of chunks that are more than one chunk off screen
+        for (int i = 0; i < image.length; i++) {
+            if (image[i] == null) continue;
+            int c = i % cols, r = i / cols;
+            if (c < c0 - 1 || c > c1 + 1 || r < r0 - 1 || r > r1 + 1) image[i] = null;
+        }
+
+        // Solid chunks are filled straight away, mixed ones are drawn after
+        int mixed = 0;
+        g.setColor(fillColor);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int i = r * cols + c,
+                        x = originX + c * CHUNK_SIZE,
+                        y = originY + r * CHUNK_SIZE;
+
+                if (kind[i] == UNKNOWN) classify(i, x, y);
+
+                if (kind[i] == SOLID) {
+                    g.fillRect(x, y, CHUNK_SIZE, CHUNK_SIZE);
+                } else if (kind[i] == MIXED) {
+                    if (image[i] == null) image[i] = drawChunk(g, i, x, y);
+                    visible[mixed++] = i;
+                }
+            }
+        }
+
+        // The images are already at screen size, so draw them without a transform, at whole pixels,
+        // which is just a copy instead of a scaled and filtered draw
+        AffineTransform oldTransform = g.getTransform();
+        double offsetX = oldTransform.getTranslateX(), offsetY = oldTransform.getTranslateY();
+        g.setTransform(identity);
+        for (int k = 0; k < mixed; k++) {
+            int i = visible[k];
+            double x = originX + (i % cols) * CHUNK_SIZE, y = originY + (i / cols) * CHUNK_SIZE;
+            g.drawImage(image[i], (int) Math.round(x * scale + offsetX), (int) Math.round(y * scale + offsetY), null);
+        }
+        g.setTransform(oldTransform);
+    }
+
+    private void classify(int i, int x, int y) {
+        Rectangle2D bounds = new Rectangle2D.Double(x - margin, y - margin, CHUNK_SIZE + 2 * margin, CHUNK_SIZE + 2 * margin);
+
+        // The border around the level is never destroyed
+        if (!inner.intersects(bounds)) {
+            kind[i] = SOLID;
+            return;
+        }
+
+        Area part = new Area(bounds);
+        part.intersect(walls);
+
+        if (part.isEmpty()) {
+            kind[i] = EMPTY;
+        } else if (part.isRectangular() && part.getBounds2D().contains(bounds)) {
+            kind[i] = SOLID;
+        } else {
+            kind[i] = MIXED;
+            shape[i] = part;
+        }
+    }
+
+    // Draws the walls of chunk i the same way Map used to draw all of them: an outline, then the fill.
+    // The image is a pixel bigger than the chunk, so that rounding can't leave a gap between two chunks
+    private BufferedImage drawChunk(Graphics2D g, int i, int x, int y) {
+        int size = (int) Math.ceil(CHUNK_SIZE * imageScale) + 1;
+
+        // Without antialiasing every pixel is either wall or not, which is quicker to draw
+        boolean smooth = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON;
+        BufferedImage result = ImageUtils.createCompatibleImage(size, size,
+                smooth ? Transparency.TRANSLUCENT : Transparency.BITMASK);
+
+        Graphics2D cg = result.createGraphics();
+        cg.setRenderingHints(g.getRenderingHints());
+        cg.scale(imageScale, imageScale);
+        cg.translate(-x, -y);
+
+        // The outline along the edges of shape is at least margin outside the chunk, so it isn't drawn
+        cg.setStroke(stroke);
+        cg.setColor(strokeColor);
+        cg.draw(shape[i]);
+        cg.setColor(fillColor);
+        cg.fill(shape[i]);
+
+        cg.dispose();
+        return result;
+    }
+
+    private int colAt(double x) {
+        return (int) Math.floor((x - originX) / CHUNK_SIZE);
+    }
+
+    private int rowAt(double y) {
+        return (int) Math.floor((y - originY) / CHUNK_SIZE);
+    }
+
+}
@@ -0,0 +1,242 @@
+package UI;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/UI/
+ * Uniform grid over the level that buckets every wall segment into the cells its bounds overlap.
+ */
+public class WallGrid {
+
+    // This class is a spatial index for Map.walls
+    // Each cell stores the walls whose bounding box overlaps it, so a query only looks at
+    // the walls near the line or rectangle being tested instead of every wall in the level.
+    // Coordinates outside the grid are clamped onto the border cells.
+
+    // Size of one (square) cell in world units
+    public static final double CELL_SIZE = 64.0;
+
+    private final double originX, originY;
+    private final int cols, rows;
+    private final ArrayList<Wall>[] cells;
+
+    // Incremented on every collecting query, used to report each wall only once
+    private int stamp;
+
+    public WallGrid(double x, double y, double width, double height) {
+        originX = x;
+        originY = y;
+        cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+
+        // Java can't make an array of a generic type, but every element is set to an ArrayList<Wall> right here
+        @SuppressWarnings("unchecked")
+        ArrayList<Wall>[] newCells = (ArrayList<Wall>[]) new ArrayList<?>[cols * rows];
+        for (int i = 0; i < newCells.length; i++) {
+            newCells[i] = new ArrayList<>();
+        }
+        cells = newCells;
+    }
+
+    public void clear() {
+        for (List<Wall> cell : cells) {
+            cell.clear();
+        }
+    }
+
+    public void rebuild(List<Line2D> walls) {
+        clear();
+        for (Line2D w : walls) {
+            add((Wall) w);
+        }
+    }
+
+    public void add(Wall w) {
+        int minCol = col(Math.min(w.x1, w.x2)), maxCol = col(Math.max(w.x1, w.x2)),
+                minRow = row(Math.min(w.y1, w.y2)), maxRow = row(Math.max(w.y1, w.y2));
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                cells[r * cols + c].add(w);
+            }
+        }
+    }
+
+    public void remove(Wall w) {
+        int minCol = col(Math.min(w.x1, w.x2)), maxCol = col(Math.max(w.x1, w.x2)),
+                minRow = row(Math.min(w.y1, w.y2)), maxRow = row(Math.max(w.y1, w.y2));
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                List<Wall> cell = cells[r * cols + c];
+                int i = cell.indexOf(w);
+                if (i != -1) {
+                    // Order inside a cell doesn't matter, so swap the last wall into the gap
+                    cell.set(i, cell.get(cell.size() - 1));
+                    cell.remove(cell.size() - 1);
+                }
+            }
+        }
+    }
+
+    // Adds every wall that intersects rect to output
+    public void query(Rectangle2D rect, List<Line2D> output) {
+        stamp++;
+
+        int minCol = col(rect.getMinX()), maxCol = col(rect.getMaxX()),
+                minRow = row(rect.getMinY()), maxRow = row(rect.getMaxY());
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                List<Wall> cell = cells[r * cols + c];
+                for (int i = 0; i < cell.size(); i++) {
+                    Wall w = cell.get(i);
+                    if (w.stamp != stamp) {
+                        w.stamp = stamp;
+                        if (rect.intersectsLine(w)) output.add(w);
+                    }
+                }
+            }
+        }
+    }
+
+    // Adds every wall that intersects the line (x1, y1) -> (x2, y2) to output
+    public void query(double x1, double y1, double x2, double y2, List<Line2D> output) {
+        stamp++;
+        walk(x1, y1, x2, y2, output, false);
+    }
+
+    // Returns true if any wall intersects the line (x1, y1) -> (x2, y2)
+    // This query does not modify the grid, so it is safe to call from several threads at once
+    public boolean intersects(double x1, double y1, double x2, double y2) {
+        return walk(x1, y1, x2, y2, null, false) >= 0.0;
+    }
+
+    // Returns the fraction (0 to 1) along the line (x1, y1) -> (x2, y2) where it first hits a wall,
+    // or -1 if it doesn't hit one. Also safe to call from several threads at once
+    public double raycast(double x1, double y1, double x2, double y2) {
+        return walk(x1, y1, x2, y2, null, true);
+    }
+
+    // Steps through the cells touched by the line (a DDA walk).
+    // If nearest is set, returns the fraction along the line of the closest hit,
+    // else if output is null, returns as soon as an intersecting wall is found,
+    // otherwise adds all intersecting walls to output (using stamp to skip duplicates).
+    // Returns -1 when nothing was hit
+    private double walk(double x1, double y1, double x2, double y2, List<Line2D> output, boolean nearest) {
+
+        double dx = x2 - x1, dy = y2 - y1;
+
+        // Clip the line to the grid bounds (Liang-Barsky)
+        double maxX = originX + cols * CELL_SIZE, maxY = originY + rows * CELL_SIZE;
+        double t0 = 0.0, t1 = 1.0;
+        for (int edge = 0; edge < 4; edge++) {
+            double p, q;
+            switch (edge) {
+                case 0: p = -dx; q = x1 - originX; break;
+                case 1: p = dx; q = maxX - x1; break;
+                case 2: p = -dy; q = y1 - originY; break;
+                default: p = dy; q = maxY - y1; break;
+            }
+            if (p == 0.0) {
+                if (q < 0.0) return -1.0;
+            } else {
+                double t = q / p;
+                if (p < 0.0) {
+                    if (t > t1) return -1.0;
+                    if (t > t0) t0 = t;
+                } else {
+                    if (t < t0) return -1.0;
+                    if (t < t1) t1 = t;
+                }
+            }
+        }
+
+        double startX = x1 + t0 * dx, startY = y1 + t0 * dy;
+        int c = col(startX), r = row(startY),
+                endCol = col(x1 + t1 * dx), endRow = row(y1 + t1 * dy);
+
+        int stepCol = dx > 0.0 ? 1 : -1, stepRow = dy > 0.0 ? 1 : -1;
+        double tDeltaX = dx != 0.0 ? CELL_SIZE / Math.abs(dx) : Double.POSITIVE_INFINITY,
+                tDeltaY = dy != 0.0 ? CELL_SIZE / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        double tMaxX = dx > 0.0 ? (originX + (c + 1) * CELL_SIZE - x1) / dx :
+                dx < 0.0 ? (originX + c * CELL_SIZE - x1) / dx : Double.POSITIVE_INFINITY;
+        double tMaxY = dy > 0.0 ? (originY + (r + 1) * CELL_SIZE - y1) / dy :
+                dy < 0.0 ? (originY + r * CELL_SIZE - y1) / dy : Double.POSITIVE_INFINITY;
+
+        double closest = -1.0;
+
+        // A line can never cross more than cols + rows cells, this guards against rounding errors
+        for (int n = cols + rows; n >= 0; n--) {
+
+            List<Wall> cell = cells[r * cols + c];
+            for (int i = 0; i < cell.size(); i++) {
+                Wall w = cell.get(i);
+                if (nearest) {
+                    double t = intersection(x1, y1, dx, dy, w);
+                    if (t >= 0.0 && (closest < 0.0 || t < closest)) closest = t;
+                } else if (output == null) {
+                    if (w.intersectsLine(x1, y1, x2, y2)) return 0.0;
+                } else if (w.stamp != stamp) {
+                    w.stamp = stamp;
+                    if (w.intersectsLine(x1, y1, x2, y2)) output.add(w);
+                }
+            }
+
+            if (c == endCol && r == endRow) break;
+
+            // Any wall hit further along the line is behind the one already found
+            if (closest >= 0.0 && closest <= Math.min(tMaxX, tMaxY)) break;
+
+            if (tMaxX < tMaxY) {
+                tMaxX += tDeltaX;
+                c += stepCol;
+            } else {
+                tMaxY += tDeltaY;
+                r += stepRow;
+            }
+
+            if (c < 0 || c >= cols || r < 0 || r >= rows) break;
+        }
+
+        return closest;
+    }
+
+    // Fraction along the line from (x, y) with direction (dx, dy) where it crosses w, or -1
+    private static double intersection(double x, double y, double dx, double dy, Wall w) {
+        double ex = w.x2 - w.x1, ey = w.y2 - w.y1;
+        double denom = dx * ey - dy * ex;
+        if (denom == 0.0) return -1.0; // Parallel
+
+        double ax = w.x1 - x, ay = w.y1 - y;
+        double t = (ax * ey - ay * ex) / denom;
+        double u = (ax * dy - ay * dx) / denom;
+
+        return t >= 0.0 && t <= 1.0 && u >= 0.0 && u <= 1.0 ? t : -1.0;
+    }
+
+    private int col(double x) {
+        return Math.min(Math.max((int) Math.floor((x - originX) / CELL_SIZE), 0), cols - 1);
+    }
+
+    private int row(double y) {
+        return Math.min(Math.max((int) Math.floor((y - originY) / CELL_SIZE), 0), rows - 1);
+    }
+
+    // A wall segment that remembers the last query that visited it
+    public static class Wall extends Line2D.Double {
+
+        private static final long serialVersionUID = 1L;
+
+        private int stamp;
+        int index; // Position in Map.walls, so it can be removed without searching
+
+        public Wall(double x1, double y1, double x2, double y2) {
+            super(x1, y1, x2, y2);
+        }
+    }
+
+}
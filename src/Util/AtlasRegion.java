@@ -0,0 +1,41 @@
+package Util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Util/
+ * A rectangle of a TextureAtlas page that holds one image.
+ */
+public class AtlasRegion {
+
+    public final BufferedImage page;
+    public final int x, y, width, height;
+
+    public AtlasRegion(BufferedImage _page, int _x, int _y, int _width, int _height) {
+        page = _page;
+        x = _x;
+        y = _y;
+        width = _width;
+        height = _height;
+    }
+
+    // Draws the region with its top left corner at (dx, dy)
+    public void draw(Graphics2D g, int dx, int dy) {
+        draw(g, dx, dy, width, height);
+    }
+
+    // Draws the region stretched to w by h, with its top left corner at (dx, dy)
+    public void draw(Graphics2D g, int dx, int dy, int w, int h) {
+        g.drawImage(page, dx, dy, dx + w, dy + h, x, y, x + width, y + height, null);
+    }
+
+    // Graphics for drawing into the region, moved so that (0, 0) is its top left corner and clipped to it
+    public Graphics2D createGraphics() {
+        Graphics2D g = page.createGraphics();
+        g.translate(x, y);
+        g.clipRect(0, 0, width, height);
+        return g;
+    }
+
+}
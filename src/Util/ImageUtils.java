@@ -60,7 +60,24 @@ public abstract class ImageUtils {
 //        return result;
 //    }
 
+    // Creates a blank image in the screen's format, or a plain ARGB image if there is no screen
+    public static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, transparency == Transparency.OPAQUE ?
+                    BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+
+        GraphicsConfiguration config = GraphicsEnvironment.
+                getLocalGraphicsEnvironment().getDefaultScreenDevice().
+                getDefaultConfiguration();
+
+        return config.createCompatibleImage(width, height, transparency);
+    }
+
     public static BufferedImage getCompatableVersion(BufferedImage input) {
+        // Without a screen there is no format to convert to
+        if (GraphicsEnvironment.isHeadless()) return input;
+
         // Get current graphics configuration
         GraphicsConfiguration config = GraphicsEnvironment.
                 getLocalGraphicsEnvironment().getDefaultScreenDevice().
@@ -0,0 +1,91 @@
+package Util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Util/
+ * Times and counts the allocations of the main parts of an update, when turned on.
+ */
+public abstract class Profiler {
+
+    // Wrap a section in begin(SECTION) and end(SECTION) and the time and bytes allocated
+    // between the two are added to that section's totals, until the next reset().
+    // It is off by default, and then begin() and end() do nothing.
+    // Allocations are only counted on the thread that called begin(), so work handed to
+    // other threads (e.g. enemies thinking in parallel) only shows up in the time.
+    // Sections can't be nested inside themselves, and should only be used from one thread.
+
+    public static final int
+            ENTITIES = 0,
+            HIT_ANIMATIONS = 1,
+            EXPLOSIONS = 2,
+            SHADOW = 3,
+            SNAPSHOT = 4,
+
+            SECTIONS = 5;
+
+    public static final String[] NAMES = {
+            "EntityManager.update", "EntityManager.getHitAnimations", "Map.applyExplosions", "Shadow.update",
+            "PlayState.publish"
+    };
+
+    private static boolean enabled;
+
+    private static final long[] startTime = new long[SECTIONS], startBytes = new long[SECTIONS],
+            time = new long[SECTIONS], bytes = new long[SECTIONS];
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    public static void setEnabled(boolean _enabled) {
+        enabled = _enabled;
+
+        if (enabled && threads == null) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                threads = (com.sun.management.ThreadMXBean) bean;
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        reset();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void begin(int section) {
+        if (!enabled) return;
+        startBytes[section] = allocatedBytes();
+        startTime[section] = System.nanoTime();
+    }
+
+    public static void end(int section) {
+        if (!enabled) return;
+        time[section] += System.nanoTime() - startTime[section];
+        bytes[section] += allocatedBytes() - startBytes[section];
+    }
+
+    // Total nanoseconds spent in the section since the last reset
+    public static long getTime(int section) {
+        return time[section];
+    }
+
+    // Total bytes allocated in the section since the last reset, or 0 if the JVM can't count them
+    public static long getBytes(int section) {
+        return bytes[section];
+    }
+
+    public static void reset() {
+        for (int i = 0; i < SECTIONS; i++) {
+            time[i] = bytes[i] = 0;
+        }
+    }
+
+    // Bytes allocated by this thread so far
+    public static long allocatedBytes() {
+        if (threads == null) return 0;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
@@ -0,0 +1,151 @@
+package Util;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Util/
+ * Copies of images drawn at a fixed set of angles, so rotated images can be drawn without a transform.
+ */
+public abstract class RotationCache {
+
+    // Drawing an image through a rotation takes Java2D's slowest path, so instead the angle is
+    // rounded to one of a fixed number of steps, and the image is drawn once at that angle (and at
+    // the scale of the screen) into a copy, which is then just copied onto the screen every frame.
+    // The copies of an image are made as each angle is first needed. Images that haven't been drawn
+    // in a while are forgotten once the copies take up more than the memory budget.
+    // All the copies of an image share one TextureAtlas sheet, so drawing an image at any angle
+    // copies from the same (accelerated) image rather than one of many small ones.
+    // It should only be used from the thread that draws.
+
+    public static final int DEFAULT_ANGLES = 64;
+    public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+    private static int angles = DEFAULT_ANGLES;
+    private static long budget = DEFAULT_BUDGET, bytes;
+
+    // Least recently drawn first. BufferedImage doesn't override equals, so images are compared by identity
+    private static final LinkedHashMap<BufferedImage, Page> pages = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final AffineTransform identity = new AffineTransform();
+
+    // The copies of one image at one scale
+    private static class Page {
+        final double scale;
+        final TextureAtlas sheet;
+        final AtlasRegion[] rotated;
+        long bytes;
+
+        Page(BufferedImage image, double _scale) {
+            scale = _scale;
+            rotated = new AtlasRegion[angles];
+
+            // Room for the biggest copy (at 45 degrees or so) in every cell of a square sheet
+            int cell = (int) Math.ceil(Math.hypot(image.getWidth(), image.getHeight()) * scale) + 3;
+            int columns = (int) Math.ceil(Math.sqrt(angles));
+            sheet = new TextureAtlas(columns * cell, columns * cell);
+        }
+    }
+
+    // Draws image rotated by angle around its middle, with its middle at (x, y)
+    public static void draw(Graphics2D g, BufferedImage image, double x, double y, double angle) {
+        AffineTransform oldTransform = g.getTransform();
+
+        // Only scaling and moving can be undone by drawing at a different place and size
+        if (oldTransform.getShearX() != 0 || oldTransform.getShearY() != 0 ||
+                oldTransform.getScaleX() != oldTransform.getScaleY()) {
+            g.rotate(angle, x, y);
+            g.drawImage(image, (int) (x - image.getWidth() * 0.5), (int) (y - image.getHeight() * 0.5), null);
+            g.setTransform(oldTransform);
+            return;
+        }
+
+        double scale = oldTransform.getScaleX();
+        AtlasRegion rotated = get(g, image, angle, scale);
+
+        g.setTransform(identity);
+        rotated.draw(g,
+                (int) Math.round(x * scale + oldTransform.getTranslateX() - rotated.width * 0.5),
+                (int) Math.round(y * scale + oldTransform.getTranslateY() - rotated.height * 0.5));
+        g.setTransform(oldTransform);
+    }
+
+    private static AtlasRegion get(Graphics2D g, BufferedImage image, double angle, double scale) {
+        Page page = pages.get(image);
+        if (page == null || page.scale != scale) {
+            if (page != null) bytes -= page.bytes;
+            page = new Page(image, scale);
+            pages.put(image, page);
+        }
+
+        int step = Math.floorMod((int) Math.round(angle * angles / (2.0 * Math.PI)), angles);
+        if (page.rotated[step] == null) {
+            page.rotated[step] = render(g, page.sheet, image, step * 2.0 * Math.PI / angles, scale);
+
+            // The sheet only takes up memory once its first copy is drawn
+            long size = page.sheet.getBytes() - page.bytes;
+            page.bytes += size;
+            bytes += size;
+            evict(page);
+        }
+
+        return page.rotated[step];
+    }
+
+    private static AtlasRegion render(Graphics2D g, TextureAtlas sheet, BufferedImage image, double angle, double scale) {
+        int w = image.getWidth(), h = image.getHeight();
+        double cos = Math.abs(Math.cos(angle)), sin = Math.abs(Math.sin(angle));
+
+        // Big enough for the rotated corners, plus a pixel on each side for rounding
+        int size_w = (int) Math.ceil((w * cos + h * sin) * scale) + 2,
+                size_h = (int) Math.ceil((w * sin + h * cos) * scale) + 2;
+
+        AtlasRegion result = sheet.allocate(size_w, size_h);
+        Graphics2D rg = result.createGraphics();
+        rg.setRenderingHints(g.getRenderingHints());
+        rg.translate(size_w * 0.5, size_h * 0.5);
+        rg.scale(scale, scale);
+        rg.rotate(angle);
+        rg.translate(-w * 0.5, -h * 0.5);
+        rg.drawImage(image, 0, 0, null);
+        rg.dispose();
+
+        return result;
+    }
+
+    // Forgets the least recently drawn images until the copies fit in the budget,
+    // except for keep (the page being drawn), which is always kept
+    private static void evict(Page keep) {
+        Iterator<Page> it = pages.values().iterator();
+        while (bytes > budget && it.hasNext()) {
+            Page page = it.next();
+            if (page == keep) continue;
+            bytes -= page.bytes;
+            it.remove();
+        }
+    }
+
+    // Changes how many angles images are drawn at, which throws away every copy
+    public static void setAngles(int _angles) {
+        angles = Math.max(1, _angles);
+        clear();
+    }
+
+    public static void setBudget(long _budget) {
+        budget = _budget;
+        evict(null);
+    }
+
+    public static void clear() {
+        pages.clear();
+        bytes = 0;
+    }
+
+    public static long getBytes() {
+        return bytes;
+    }
+
+}
@@ -0,0 +1,99 @@
+package Util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directory: WarmVector_Client_Singleplayer/Util/
+ * Packs many small images into a few big ones, so drawing them switches between fewer images.
+ */
+public class TextureAtlas {
+
+    // Images are placed left to right along a shelf, and when one doesn't fit in what's left of
+    // the shelf a new shelf is started above the tallest image on the current one. When a shelf
+    // doesn't fit on the page, a new page is started. This wastes some space when images of very
+    // different heights share a shelf, but the images put in one atlas (like the rotated copies
+    // of one image in RotationCache) are all about the same size.
+    // An image bigger than a page gets a page to itself. Space is never given back one image at
+    // a time, only by clear().
+    // Every page is an image in the screen's format, so Java2D can keep it on the graphics card.
+
+    // Empty pixels between images, so that smooth scaling never picks up a neighbour's pixels
+    private static final int PADDING = 1;
+
+    private final int pageWidth, pageHeight;
+    private final List<BufferedImage> pages;
+
+    private BufferedImage current;
+    private int cursorX, shelfY, shelfHeight;
+    private long bytes;
+
+    public TextureAtlas(int _pageWidth, int _pageHeight) {
+        pageWidth = _pageWidth;
+        pageHeight = _pageHeight;
+        pages = new ArrayList<>();
+    }
+
+    // Copies image into the atlas
+    public synchronized AtlasRegion add(BufferedImage image) {
+        AtlasRegion region = allocate(image.getWidth(), image.getHeight());
+
+        Graphics2D g = region.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+
+        return region;
+    }
+
+    // Finds space for a (transparent) width by height image
+    public synchronized AtlasRegion allocate(int width, int height) {
+        int paddedWidth = width + PADDING, paddedHeight = height + PADDING;
+
+        if (paddedWidth > pageWidth || paddedHeight > pageHeight) {
+            return new AtlasRegion(newPage(width, height), 0, 0, width, height);
+        }
+
+        if (current != null && cursorX + paddedWidth > pageWidth) {
+            shelfY += shelfHeight;
+            cursorX = shelfHeight = 0;
+        }
+
+        if (current == null || shelfY + paddedHeight > pageHeight) {
+            current = newPage(pageWidth, pageHeight);
+            cursorX = shelfY = shelfHeight = 0;
+        }
+
+        AtlasRegion region = new AtlasRegion(current, cursorX, shelfY, width, height);
+        cursorX += paddedWidth;
+        shelfHeight = Math.max(shelfHeight, paddedHeight);
+
+        return region;
+    }
+
+    private BufferedImage newPage(int width, int height) {
+        BufferedImage page = ImageUtils.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        pages.add(page);
+        bytes += 4L * width * height;
+        return page;
+    }
+
+    public synchronized int getPageCount() {
+        return pages.size();
+    }
+
+    // Memory taken by the pages, roughly
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    // Throws away every page, regions from before are no longer valid
+    public synchronized void clear() {
+        pages.clear();
+        current = null;
+        bytes = 0;
+    }
+
+}